@@ -0,0 +1,122 @@
+package com.talkflow.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Small LRU cache with a per-value time to live. A load that overlaps an invalidation is
+ * returned to its caller but not stored, so an invalidation can never be undone by a stale read.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final Map<K, Entry<V>> entries;
+    private final Function<V, Duration> ttl;
+    private final Counter hits;
+    private final Counter misses;
+    private long modifications;
+
+    public BoundedTtlCache(String name, int maxEntries, Function<V, Duration> ttl, MeterRegistry meterRegistry) {
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("talkflow.cache.gets").tag("cache", name).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("talkflow.cache.gets").tag("cache", name).tag("result", "miss").register(meterRegistry);
+        Gauge.builder("talkflow.cache.size", this, BoundedTtlCache::size).tag("cache", name).register(meterRegistry);
+    }
+
+    public V getIfPresent(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) return null;
+            if (entry.expiresAt() - System.nanoTime() <= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        long seen;
+        synchronized (entries) {
+            V cached = getIfPresent(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            seen = modifications;
+        }
+        misses.increment();
+
+        V loaded = loader.apply(key);
+        if (loaded != null) {
+            synchronized (entries) {
+                if (modifications == seen) {
+                    store(key, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            modifications++;
+            store(key, value);
+        }
+    }
+
+    // for loads that cannot be guarded against a concurrent put, e.g. several keys read in one query
+    public void putIfAbsent(K key, V value) {
+        synchronized (entries) {
+            if (getIfPresent(key) == null) {
+                modifications++;
+                store(key, value);
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            modifications++;
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            modifications++;
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double hitRate() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private void store(K key, V value) {
+        Duration timeToLive = ttl.apply(value);
+        if (timeToLive.isZero() || timeToLive.isNegative()) return;
+        entries.put(key, new Entry<>(value, System.nanoTime() + timeToLive.toNanos()));
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.talkflow.cache;
+
+import com.talkflow.repository.UserConnectionRepo;
+import com.talkflow.websocket.cluster.InvalidationBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Whether two users may message each other, i.e. whether an ACCEPTED connection exists between them,
+ * and each user's accepted peers. UserConnectionService invalidates a pair whenever it changes the
+ * relationship, on every node, which also drops the peer lists of both users.
+ */
+@Component
+public class ConnectionPermissionCache {
+
+    private static final String TOPIC = "connection-permissions";
+
+    private final UserConnectionRepo userConnectionRepo;
+    private final InvalidationBus invalidationBus;
+    private final BoundedTtlCache<UserPair, Boolean> permissions;
+    private final BoundedTtlCache<Long, List<Long>> acceptedPeers;
+
+    public ConnectionPermissionCache(UserConnectionRepo userConnectionRepo, InvalidationBus invalidationBus, MeterRegistry meterRegistry,
+                                     @Value("${app.cache.connection-permissions.max-entries:100000}") int maxEntries,
+                                     @Value("${app.cache.connection-permissions.ttl-seconds:300}") long ttlSeconds,
+                                     @Value("${app.cache.connection-permissions.negative-ttl-seconds:30}") long negativeTtlSeconds,
+                                     @Value("${app.cache.accepted-peers.max-entries:50000}") int peersMaxEntries,
+                                     @Value("${app.cache.accepted-peers.ttl-seconds:300}") long peersTtlSeconds) {
+        this.userConnectionRepo = userConnectionRepo;
+        this.invalidationBus = invalidationBus;
+        Duration allowedTtl = Duration.ofSeconds(ttlSeconds);
+        Duration deniedTtl = Duration.ofSeconds(negativeTtlSeconds);
+        this.permissions = new BoundedTtlCache<>("connection-permissions", maxEntries, allowed -> allowed ? allowedTtl : deniedTtl, meterRegistry);
+        Duration peersTtl = Duration.ofSeconds(peersTtlSeconds);
+        this.acceptedPeers = new BoundedTtlCache<>("accepted-peers", peersMaxEntries, peers -> peersTtl, meterRegistry);
+        invalidationBus.subscribe(TOPIC, pair -> {
+            String[] ids = pair.split(":");
+            invalidateLocally(Long.parseLong(ids[0]), Long.parseLong(ids[1]));
+        });
+    }
+
+    public boolean canMessage(Long userId1, Long userId2) {
+        return permissions.get(UserPair.of(userId1, userId2),
+                pair -> userConnectionRepo.findAcceptedConnectionBetween(pair.low(), pair.high()).isPresent());
+    }
+
+    // presence snapshots and updates go to these, so a reconnect storm does not query every user's connections
+    public List<Long> acceptedPeers(long userId) {
+        return acceptedPeers.get(userId, id -> userConnectionRepo.getAllAcceptedRequest(id).stream()
+                .map(uc -> uc.getSenderId().equals(id) ? uc.getReceiverId() : uc.getSenderId())
+                .toList());
+    }
+
+    public void invalidate(Long userId1, Long userId2) {
+        invalidateLocally(userId1, userId2);
+        invalidationBus.publish(TOPIC, userId1 + ":" + userId2);
+    }
+
+    private void invalidateLocally(long userId1, long userId2) {
+        permissions.invalidate(UserPair.of(userId1, userId2));
+        acceptedPeers.invalidate(userId1);
+        acceptedPeers.invalidate(userId2);
+    }
+
+    private record UserPair(long low, long high) {
+        static UserPair of(long a, long b) {
+            return a < b ? new UserPair(a, b) : new UserPair(b, a);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.talkflow.cache;
+
+import com.talkflow.repository.group.GroupMemberRepo;
+import com.talkflow.websocket.cluster.InvalidationBus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * groupId -> sorted member userIds, loaded lazily and kept in LRU order so that
+ * group fan-out does not hit group-chat-members on every message. Changes are applied here and
+ * evict the group on every other node, which reloads it on next use; entries also expire, which bounds
+ * how long a node that missed an eviction serves a stale member list.
+ */
+@Component
+public class GroupMembershipIndex {
+
+    private static final long[] NO_MEMBERS = new long[0];
+    private static final String TOPIC = "group-members";
+
+    private final GroupMemberRepo groupMemberRepo;
+    private final InvalidationBus invalidationBus;
+    private final Map<Long, Members> members;
+    private final long ttlNanos;
+    private final AtomicLong modifications = new AtomicLong();
+
+    public GroupMembershipIndex(GroupMemberRepo groupMemberRepo, InvalidationBus invalidationBus, MeterRegistry meterRegistry,
+                                @Value("${app.cache.group-members.max-groups:10000}") int maxGroups,
+                                @Value("${app.cache.group-members.ttl-seconds:600}") long ttlSeconds) {
+        this.groupMemberRepo = groupMemberRepo;
+        this.invalidationBus = invalidationBus;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.members = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Members> eldest) {
+                return size() > maxGroups;
+            }
+        };
+        Gauge.builder("talkflow.cache.group-members.size", this, GroupMembershipIndex::size).register(meterRegistry);
+        invalidationBus.subscribe(TOPIC, groupId -> evictLocally(Long.parseLong(groupId)));
+    }
+
+    public long[] members(long groupId) {
+        Members cached;
+        synchronized (members) {
+            cached = members.get(groupId);
+        }
+        if (cached != null && cached.expiresAt() - System.nanoTime() > 0) return cached.ids();
+
+        long seen = modifications.get();
+        List<Long> ids = groupMemberRepo.findMemberIdsByGroupId(groupId);
+        long[] loaded = ids.isEmpty() ? NO_MEMBERS : ids.stream().mapToLong(Long::longValue).distinct().sorted().toArray();
+
+        synchronized (members) {
+            // a membership change raced with the load; serve the result but do not cache it
+            if (modifications.get() == seen) {
+                members.put(groupId, new Members(loaded, System.nanoTime() + ttlNanos));
+            }
+        }
+        return loaded;
+    }
+
+    public boolean isMember(long groupId, long userId) {
+        return Arrays.binarySearch(members(groupId), userId) >= 0;
+    }
+
+    public void groupCreated(long groupId, long creatorId) {
+        synchronized (members) {
+            modifications.incrementAndGet();
+            members.put(groupId, new Members(new long[]{creatorId}, System.nanoTime() + ttlNanos));
+        }
+        invalidationBus.publish(TOPIC, String.valueOf(groupId));
+    }
+
+    public void memberAdded(long groupId, long userId) {
+        synchronized (members) {
+            modifications.incrementAndGet();
+            members.computeIfPresent(groupId, (id, entry) -> {
+                long[] current = entry.ids();
+                int pos = Arrays.binarySearch(current, userId);
+                if (pos >= 0) return entry;
+                int insertAt = -pos - 1;
+                long[] updated = new long[current.length + 1];
+                System.arraycopy(current, 0, updated, 0, insertAt);
+                updated[insertAt] = userId;
+                System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+                return new Members(updated, entry.expiresAt());
+            });
+        }
+        invalidationBus.publish(TOPIC, String.valueOf(groupId));
+    }
+
+    public void evict(long groupId) {
+        evictLocally(groupId);
+        invalidationBus.publish(TOPIC, String.valueOf(groupId));
+    }
+
+    private void evictLocally(long groupId) {
+        synchronized (members) {
+            modifications.incrementAndGet();
+            members.remove(groupId);
+        }
+    }
+
+    private int size() {
+        synchronized (members) {
+            return members.size();
+        }
+    }
+
+    private record Members(long[] ids, long expiresAt) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.talkflow.cache;
+
+import com.talkflow.entity.auth.User;
+import com.talkflow.repository.auth.UserRepository;
+import com.talkflow.websocket.cluster.InvalidationBus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+
+/**
+ * UserDetailsService that keeps users for a short time, so authenticating a request or handshake does not
+ * query the users table each time. Services that change a user invalidate it by email, on every node. Every caller gets
+ * its own copy, so a controller changing its principal cannot leak into other requests.
+ */
+public class UserDetailsCache implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final String TOPIC = "user-details";
+
+    private final UserRepository userRepository;
+    private final InvalidationBus invalidationBus;
+    private final BoundedTtlCache<String, User> users;
+
+    public UserDetailsCache(UserRepository userRepository, InvalidationBus invalidationBus, MeterRegistry meterRegistry, int maxEntries, Duration ttl) {
+        this.userRepository = userRepository;
+        this.invalidationBus = invalidationBus;
+        this.users = new BoundedTtlCache<>("user-details", maxEntries, user -> ttl, meterRegistry);
+        invalidationBus.subscribe(TOPIC, users::invalidate);
+        Gauge.builder("talkflow.cache.hit-rate", users, BoundedTtlCache::hitRate).tag("cache", "user-details").register(meterRegistry);
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        User user = users.get(username, email -> userRepository.findByEmail(email).map(UserDetailsCache::copy).orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found");
+        }
+        return copy(user);
+    }
+
+    // rehash with the current BCrypt cost after a successful login
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), newPassword);
+        invalidate(user.getUsername());
+        return loadUserByUsername(user.getUsername());
+    }
+
+    public void invalidate(String email) {
+        if (email == null) return;
+        users.invalidate(email);
+        invalidationBus.publish(TOPIC, email);
+    }
+
+    private static User copy(User user) {
+        return User.builder()
+                .userId(user.getUserId())
+                .firstName(user.getFirstName())
+                .middleName(user.getMiddleName())
+                .lastName(user.getLastName())
+                .email(user.getEmail())
+                .authProvider(user.getAuthProvider())
+                .password(user.getPassword())
+                .profile_url(user.getProfile_url())
+                .createdAt(user.getCreatedAt())
+                .isActive(user.getIsActive())
+                .isVerified(user.getIsVerified())
+                .lastSeenAt(user.getLastSeenAt())
+                .securityVersion(user.getSecurityVersion())
+                .build();
+    }
+}
@@ -1,7 +1,11 @@
 package com.talkflow.configuration;
 
+import com.talkflow.cache.UserDetailsCache;
 import com.talkflow.repository.auth.UserRepository;
+import com.talkflow.websocket.cluster.InvalidationBus;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -9,10 +13,10 @@ import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+
 @Configuration
 @RequiredArgsConstructor
 public class ApplicationConfig {
@@ -20,16 +24,18 @@ public class ApplicationConfig {
     private final UserRepository userRepository;
 
     @Bean
-    public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+    public UserDetailsCache userDetailsService(InvalidationBus invalidationBus, MeterRegistry meterRegistry,
+                                               @Value("${app.cache.user-details.max-entries:50000}") int maxEntries,
+                                               @Value("${app.cache.user-details.ttl-seconds:60}") long ttlSeconds) {
+        return new UserDetailsCache(userRepository, invalidationBus, meterRegistry, maxEntries, Duration.ofSeconds(ttlSeconds));
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(UserDetailsCache userDetailsService, PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
-        authProvider.setUserDetailsService(userDetailsService());
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setUserDetailsService(userDetailsService);
+        authProvider.setUserDetailsPasswordService(userDetailsService);
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -38,8 +44,12 @@ public class ApplicationConfig {
         return config.getAuthenticationManager();
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${app.security.bcrypt.strength:10}") int strength,
+                                           @Value("${app.security.hashing.threads:2}") int threads,
+                                           @Value("${app.security.hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${app.security.hashing.queue-timeout-ms:2000}") long queueTimeoutMs) {
+        return new BoundedPasswordEncoder(strength, threads, queueCapacity, queueTimeoutMs, meterRegistry);
     }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.talkflow.configuration;
+
+import com.talkflow.exception.HashingCapacityExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * BCrypt on a small fixed pool with a bounded queue, so a login burst can use at most that many cores.
+ * A hash that cannot be queued, or is still queued after the queue timeout, fails fast with
+ * HashingCapacityExceededException (429) instead of piling up request threads.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final ThreadPoolExecutor hashers;
+    private final long queueTimeoutMs;
+    private final Timer hashTime;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(int strength, int threads, int queueCapacity, long queueTimeoutMs, MeterRegistry meterRegistry) {
+        this.bcrypt = new BCryptPasswordEncoder(strength);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.hashers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hasher-", 0).daemon().factory());
+
+        Gauge.builder("talkflow.security.hashing.queued", hashers, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("talkflow.security.hashing.active", hashers, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        this.hashTime = Timer.builder("talkflow.security.hashing.time").tag("strength", String.valueOf(strength)).publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.rejected = Counter.builder("talkflow.security.hashing.rejected").register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> bcrypt.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> bcrypt.matches(rawPassword, encodedPassword));
+    }
+
+    // true for hashes made with a lower cost than configured; DaoAuthenticationProvider then rehashes on login
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return bcrypt.upgradeEncoding(encodedPassword);
+    }
+
+    public void shutdown() {
+        hashers.shutdown();
+    }
+
+    private <T> T run(Callable<T> hash) {
+        // whoever flips this first decides: the hasher starts the work, or the timed-out caller withdraws it
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> result;
+        try {
+            result = hashers.submit(() -> claimed.compareAndSet(false, true) ? hashTime.recordCallable(hash) : null);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HashingCapacityExceededException("Too many sign-in requests, please retry shortly");
+        }
+
+        try {
+            try {
+                return result.get(queueTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // a hash that already started is waited for; abandoning it would only waste the CPU it is using
+                if (!claimed.compareAndSet(false, true)) return result.get();
+                result.cancel(false);
+                rejected.increment();
+                throw new HashingCapacityExceededException("Too many sign-in requests, please retry shortly");
+            }
+        } catch (InterruptedException e) {
+            result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
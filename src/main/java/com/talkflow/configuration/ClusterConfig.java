@@ -0,0 +1,96 @@
+package com.talkflow.configuration;
+
+import com.talkflow.websocket.cluster.ClusterBroker;
+import com.talkflow.websocket.cluster.DistributedInvalidationBus;
+import com.talkflow.websocket.cluster.DistributedMessageBus;
+import com.talkflow.websocket.cluster.DistributedSessionRegistry;
+import com.talkflow.websocket.cluster.InvalidationBus;
+import com.talkflow.websocket.cluster.LocalInvalidationBus;
+import com.talkflow.websocket.cluster.LocalMessageBus;
+import com.talkflow.websocket.cluster.LocalSessionRegistry;
+import com.talkflow.websocket.cluster.MessageBus;
+import com.talkflow.websocket.cluster.RedisClusterBroker;
+import com.talkflow.websocket.cluster.SessionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * app.cluster.mode=local keeps sessions and delivery inside this JVM. app.cluster.mode=redis lets several
+ * instances share the load; each instance then needs its own app.node-id.
+ */
+@Configuration
+public class ClusterConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.mode", havingValue = "local", matchIfMissing = true)
+    public SessionRegistry localSessionRegistry(MeterRegistry meterRegistry,
+                                                @Value("${app.websocket.registry.stripes:64}") int stripes) {
+        return new LocalSessionRegistry(stripes, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.mode", havingValue = "local", matchIfMissing = true)
+    public MessageBus localMessageBus(SessionRegistry sessionRegistry) {
+        return new LocalMessageBus(sessionRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.mode", havingValue = "local", matchIfMissing = true)
+    public InvalidationBus localInvalidationBus() {
+        return new LocalInvalidationBus();
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "app.cluster.mode", havingValue = "redis")
+    static class RedisClusterConfig {
+
+        @Bean
+        public RedisMessageListenerContainer clusterListenerContainer(RedisConnectionFactory connectionFactory) {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            // one thread keeps envelopes from a node in publish order; delivery only enqueues
+            container.setTaskExecutor(Executors.newSingleThreadExecutor(Thread.ofPlatform().name("cluster-inbound").daemon().factory()));
+            return container;
+        }
+
+        @Bean
+        public ClusterBroker clusterBroker(StringRedisTemplate redisTemplate, RedisMessageListenerContainer clusterListenerContainer) {
+            return new RedisClusterBroker(redisTemplate, clusterListenerContainer);
+        }
+
+        @Bean(destroyMethod = "stop")
+        public DistributedSessionRegistry distributedSessionRegistry(ClusterBroker clusterBroker, ScheduledExecutorService realtimeScheduler, MeterRegistry meterRegistry,
+                                                                     @Value("${app.node-id:0}") int nodeId,
+                                                                     @Value("${app.cluster.heartbeat-ms:5000}") long heartbeatMs,
+                                                                     @Value("${app.websocket.registry.stripes:64}") int stripes) {
+            LocalSessionRegistry local = new LocalSessionRegistry(stripes, meterRegistry);
+            DistributedSessionRegistry registry = new DistributedSessionRegistry(local, clusterBroker, String.valueOf(nodeId), heartbeatMs, meterRegistry);
+            registry.start(realtimeScheduler);
+            return registry;
+        }
+
+        @Bean
+        public DistributedMessageBus distributedMessageBus(DistributedSessionRegistry distributedSessionRegistry, ClusterBroker clusterBroker, MeterRegistry meterRegistry) {
+            DistributedMessageBus messageBus = new DistributedMessageBus(distributedSessionRegistry, clusterBroker, meterRegistry);
+            messageBus.start();
+            return messageBus;
+        }
+
+        @Bean
+        public DistributedInvalidationBus distributedInvalidationBus(ClusterBroker clusterBroker, MeterRegistry meterRegistry,
+                                                                     @Value("${app.node-id:0}") int nodeId) {
+            DistributedInvalidationBus invalidationBus = new DistributedInvalidationBus(clusterBroker, String.valueOf(nodeId), meterRegistry);
+            invalidationBus.start();
+            return invalidationBus;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.talkflow.configuration;
+
+import com.talkflow.entity.TimeSortedIdGenerator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PersistenceConfig {
+
+    @Value("${app.node-id:0}")
+    private int nodeId;
+
+    @PostConstruct
+    public void configureIdGenerator() {
+        TimeSortedIdGenerator.setNodeId(nodeId);
+    }
+}
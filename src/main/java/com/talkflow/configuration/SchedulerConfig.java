@@ -0,0 +1,19 @@
+package com.talkflow.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+@Configuration
+public class SchedulerConfig {
+
+    // one timer thread for all realtime timeouts; scheduled tasks must only hand work off, never block
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService realtimeScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("realtime-timer").daemon().factory());
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+}
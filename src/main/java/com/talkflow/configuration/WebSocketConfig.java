@@ -3,10 +3,13 @@ package com.talkflow.configuration;
 import com.talkflow.websocket.ChatWebSocketHandler;
 import com.talkflow.websocket.WebSocketAuthInterceptor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
 
 @Configuration
 @EnableWebSocket
@@ -20,4 +23,12 @@ public class WebSocketConfig implements WebSocketConfigurer {
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(chatWebSocketHandler, "/ws").addInterceptors(webSocketAuthInterceptor).setAllowedOrigins("*");
     }
+
+    // the container counts characters and FrameDecoder bytes, so multi-byte frames are still checked there
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer(@Value("${app.websocket.inbound.max-frame-bytes:65536}") int maxFrameBytes) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxFrameBytes);
+        return container;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.talkflow.configuration.jwt;
+
+import com.talkflow.entity.auth.AuthProvider;
+import com.talkflow.entity.auth.User;
+
+import java.security.Principal;
+
+/**
+ * The @AuthenticationPrincipal of REST requests. Built from the token's signed claims, so handlers that
+ * only need the caller's id do not load the user; services that modify the user load it themselves.
+ */
+public record AuthenticatedUser(Long userId, String email, AuthProvider authProvider, boolean active, boolean verified) implements Principal {
+
+    public static AuthenticatedUser of(VerifiedToken token) {
+        AuthProvider provider = token.authProvider() == null ? null : AuthProvider.valueOf(token.authProvider());
+        return new AuthenticatedUser(token.userId(), token.subject(), provider, Boolean.TRUE.equals(token.active()), Boolean.TRUE.equals(token.verified()));
+    }
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getUserId(), user.getEmail(), user.getAuthProvider(), Boolean.TRUE.equals(user.getIsActive()), Boolean.TRUE.equals(user.getIsVerified()));
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
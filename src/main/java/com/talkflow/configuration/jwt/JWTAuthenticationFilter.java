@@ -1,5 +1,6 @@
 package com.talkflow.configuration.jwt;
 
+import com.talkflow.entity.auth.User;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -16,12 +17,14 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @RequiredArgsConstructor
 @Component
 public class JWTAuthenticationFilter extends OncePerRequestFilter {
     private final JWTService jwtService;
     private final UserDetailsService userDetailsService;
+    private final SecurityVersionTable securityVersions;
 
     @Override
     protected void doFilterInternal(
@@ -33,7 +36,7 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
+        final VerifiedToken token;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -41,15 +44,15 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        userEmail = jwtService.extractUsername(jwt);
+        token = jwtService.verify(jwt);
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+        if (token.subject() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            AuthenticatedUser principal = authenticate(token);
+            if (principal != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        principal,
                         null,
-                        userDetails.getAuthorities()
+                        List.of()
                 );
                 authToken.setDetails(
                         new WebAuthenticationDetailsSource().buildDetails(request)
@@ -61,4 +64,15 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // tokens issued before the principal claims existed still go through the user lookup
+    private AuthenticatedUser authenticate(VerifiedToken token) {
+        if (token.userId() != null && token.securityVersion() != null) {
+            return securityVersions.isCurrent(token.userId(), token.securityVersion()) ? AuthenticatedUser.of(token) : null;
+        }
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(token.subject());
+        if (userDetails instanceof User user && token.subject().equals(user.getUsername())) {
+            return AuthenticatedUser.of(user);
+        }
+        return null;
+    }
 }
@@ -1,62 +1,99 @@
 package com.talkflow.configuration.jwt;
 
+import com.talkflow.cache.BoundedTtlCache;
+import com.talkflow.entity.auth.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
-import java.util.function.Function;
 
+/**
+ * Issues and verifies tokens. The signing key and parser are built once; verified tokens are cached by
+ * SHA-256 digest until they expire, so a client reusing its token skips the signature check.
+ */
 @Service
 public class JWTService {
-    @Value("${application.security.jwt.secret-key}")
-    private String secretKey;
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+    public static final Duration TOKEN_LIFETIME = Duration.ofHours(24);
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ACTIVE_CLAIM = "active";
+    public static final String AUTH_PROVIDER_CLAIM = "provider";
+    public static final String VERIFIED_CLAIM = "verified";
+    public static final String SECURITY_VERSION_CLAIM = "sv";
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    private final Key signInKey;
+    private final JwtParser parser;
+    private final BoundedTtlCache<String, VerifiedToken> verified;
+
+    public JWTService(@Value("${application.security.jwt.secret-key}") String secretKey, MeterRegistry meterRegistry,
+                      @Value("${app.security.jwt.cache.max-entries:10000}") int maxEntries) {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        this.verified = new BoundedTtlCache<>("verified-tokens", maxEntries, token -> token.expiresAt() == null ? Duration.ZERO : Duration.between(Instant.now(), token.expiresAt()), meterRegistry);
     }
 
-    public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+    /**
+     * Parses and verifies the token once; expired or tampered tokens throw a JwtException.
+     */
+    public VerifiedToken verify(String token) {
+        return verified.get(digest(token), digest -> parse(token));
     }
 
-    public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return Jwts.builder().setClaims(extraClaims).setSubject(userDetails.getUsername()).setIssuedAt(new Date(System.currentTimeMillis())).setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24)) // 24 hours
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256).compact();
+    public String extractUsername(String token) {
+        return verify(token).subject();
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    // a signed principal snapshot, so requests and handshakes can authenticate without loading the user
+    public String generateToken(UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user) {
+            claims.put(USER_ID_CLAIM, user.getUserId());
+            claims.put(AUTH_PROVIDER_CLAIM, user.getAuthProvider() == null ? null : user.getAuthProvider().name());
+            claims.put(ACTIVE_CLAIM, Boolean.TRUE.equals(user.getIsActive()));
+            claims.put(VERIFIED_CLAIM, Boolean.TRUE.equals(user.getIsVerified()));
+            claims.put(SECURITY_VERSION_CLAIM, user.getSecurityVersion());
+        }
+        return generateToken(claims, userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
+        return Jwts.builder().setClaims(extraClaims).setSubject(userDetails.getUsername()).setIssuedAt(new Date(System.currentTimeMillis())).setExpiration(new Date(System.currentTimeMillis() + TOKEN_LIFETIME.toMillis()))
+                .signWith(signInKey, SignatureAlgorithm.HS256).compact();
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private VerifiedToken parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        return new VerifiedToken(claims.getSubject(), claims.get(USER_ID_CLAIM, Long.class), claims.get(AUTH_PROVIDER_CLAIM, String.class),
+                claims.get(ACTIVE_CLAIM, Boolean.class), claims.get(VERIFIED_CLAIM, Boolean.class), claims.get(SECURITY_VERSION_CLAIM, Integer.class),
+                toInstant(claims.getIssuedAt()), toInstant(claims.getExpiration()));
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(getSignInKey()).build().parseClaimsJws(token).getBody();
+    private static Instant toInstant(Date date) {
+        return date == null ? null : date.toInstant();
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String digest(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
@@ -0,0 +1,151 @@
+package com.talkflow.configuration.jwt;
+
+import com.talkflow.repository.auth.UserRepository;
+import com.talkflow.websocket.cluster.InvalidationBus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Current security version of every user seen by this node, in striped long/int open-addressing arrays
+ * (about 32 bytes per user). A token signed with an older version than the user's current one is no
+ * longer accepted. Unknown or expired users are loaded from the database; a change marks the entry
+ * unknown so it reloads, and a load that overlaps such a change is used once but not stored.
+ */
+@Component
+public class SecurityVersionTable {
+
+    private static final int UNKNOWN = -1;
+    private static final String TOPIC = "security-versions";
+
+    private final UserRepository userRepository;
+    private final InvalidationBus invalidationBus;
+    private final Stripe[] stripes;
+    private final long ttlNanos;
+
+    public SecurityVersionTable(UserRepository userRepository, InvalidationBus invalidationBus, MeterRegistry meterRegistry,
+                                @Value("${app.security.version-table.stripes:32}") int stripeCount,
+                                @Value("${app.security.version-table.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.invalidationBus = invalidationBus;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        Gauge.builder("talkflow.security.versions.size", this, SecurityVersionTable::size).register(meterRegistry);
+        invalidationBus.subscribe(TOPIC, userId -> stripe(Long.parseLong(userId)).invalidate(Long.parseLong(userId)));
+    }
+
+    public boolean isCurrent(long userId, int tokenVersion) {
+        Stripe stripe = stripe(userId);
+        // read before the entry: an invalidation after this point changes it and the load is not stored
+        long seen = stripe.modifications();
+        int current = stripe.get(userId);
+        if (current == UNKNOWN) {
+            Integer loaded = userRepository.findSecurityVersion(userId).orElse(null);
+            if (loaded == null) return false;
+            stripe.putIfUnmodified(userId, loaded, seen, System.nanoTime() + ttlNanos);
+            current = loaded;
+        }
+        return tokenVersion >= current;
+    }
+
+    // called after the new version is committed, here and on every other node
+    public void invalidate(long userId) {
+        stripe(userId).invalidate(userId);
+        invalidationBus.publish(TOPIC, String.valueOf(userId));
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) size += stripe.size();
+        return size;
+    }
+
+    private Stripe stripe(long userId) {
+        return stripes[(int) mix(userId) & (stripes.length - 1)];
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        return key ^ (key >>> 33);
+    }
+
+    // user ids start at 1, so key 0 marks a free slot; entries are never removed, only expired
+    private static class Stripe {
+        private long[] keys = new long[16];
+        private int[] versions = new int[16];
+        private long[] expiresAt = new long[16];
+        private int size;
+        private long modifications;
+
+        synchronized long modifications() {
+            return modifications;
+        }
+
+        synchronized int get(long key) {
+            int index = slot(keys, key);
+            if (keys[index] != key || expiresAt[index] - System.nanoTime() <= 0) return UNKNOWN;
+            return versions[index];
+        }
+
+        synchronized void putIfUnmodified(long key, int version, long seenModifications, long deadline) {
+            if (modifications == seenModifications) {
+                put(key, version, deadline);
+            }
+        }
+
+        synchronized void invalidate(long key) {
+            modifications++;
+            int index = slot(keys, key);
+            if (keys[index] == key) versions[index] = UNKNOWN;
+        }
+
+        private void put(long key, int version, long deadline) {
+            int index = slot(keys, key);
+            if (keys[index] != key) {
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                    index = slot(keys, key);
+                }
+                keys[index] = key;
+                size++;
+            }
+            versions[index] = version;
+            expiresAt[index] = deadline;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldVersions = versions;
+            long[] oldExpiresAt = expiresAt;
+            keys = new long[oldKeys.length * 2];
+            versions = new int[oldKeys.length * 2];
+            expiresAt = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == 0) continue;
+                int index = slot(keys, oldKeys[i]);
+                keys[index] = oldKeys[i];
+                versions[index] = oldVersions[i];
+                expiresAt[index] = oldExpiresAt[i];
+            }
+        }
+
+        private static int slot(long[] keys, long key) {
+            int mask = keys.length - 1;
+            int index = (int) (mix(key) >>> 32) & mask;
+            while (keys[index] != 0 && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.talkflow.configuration.jwt;
+
+import com.talkflow.cache.BoundedTtlCache;
+import com.talkflow.websocket.cluster.InvalidationBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Users whose tokens issued up to a point in time must no longer be accepted, e.g. after deactivation.
+ * An entry only has to outlive the tokens it revokes, so it expires after one token lifetime. Revocations
+ * are broadcast so every node refuses the same tokens.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final String TOPIC = "token-revocations";
+
+    private final BoundedTtlCache<Long, Long> revokedUntil;
+    private final InvalidationBus invalidationBus;
+
+    public TokenRevocationList(InvalidationBus invalidationBus, MeterRegistry meterRegistry,
+                               @Value("${app.security.token-revocations.max-entries:100000}") int maxEntries) {
+        this.invalidationBus = invalidationBus;
+        this.revokedUntil = new BoundedTtlCache<>("token-revocations", maxEntries, until -> JWTService.TOKEN_LIFETIME, meterRegistry);
+        invalidationBus.subscribe(TOPIC, revocation -> {
+            String[] parts = revocation.split(":");
+            revokeUntil(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        });
+    }
+
+    public void revokeIssuedUntilNow(Long userId) {
+        long now = System.currentTimeMillis();
+        revokeUntil(userId, now);
+        invalidationBus.publish(TOPIC, userId + ":" + now);
+    }
+
+    private void revokeUntil(Long userId, long until) {
+        synchronized (revokedUntil) {
+            Long current = revokedUntil.getIfPresent(userId);
+            if (current == null || current < until) revokedUntil.put(userId, until);
+        }
+    }
+
+    // iat only has second precision, so a token issued in the same second as the revocation is refused too
+    public boolean isRevoked(Long userId, Instant issuedAt) {
+        Long until = revokedUntil.getIfPresent(userId);
+        return until != null && (issuedAt == null || issuedAt.toEpochMilli() <= until);
+    }
+}
@@ -0,0 +1,11 @@
+package com.talkflow.configuration.jwt;
+
+import java.time.Instant;
+
+/**
+ * Claims of a token whose signature and expiry have been checked. The principal claims are null for
+ * tokens issued before they were added.
+ */
+public record VerifiedToken(String subject, Long userId, String authProvider, Boolean active, Boolean verified, Integer securityVersion,
+                            Instant issuedAt, Instant expiresAt) {
+}
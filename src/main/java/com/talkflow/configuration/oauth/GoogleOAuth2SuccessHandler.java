@@ -1,15 +1,17 @@
 package com.talkflow.configuration.oauth;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talkflow.cache.UserDetailsCache;
 import com.talkflow.configuration.jwt.JWTService;
 
 import com.talkflow.dto.auth.AuthenticationResponse;
 import com.talkflow.dto.auth.UserData;
 import com.talkflow.entity.auth.AuthProvider;
 import com.talkflow.entity.auth.User;
-import com.talkflow.repository.ChatMessageRepo;
 import com.talkflow.repository.auth.UserRepository;
 
+import com.talkflow.service.AccountDetailsService;
+import com.talkflow.service.PrivateConversationTracker;
 import com.talkflow.service.S3Service;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -30,9 +32,11 @@ public class GoogleOAuth2SuccessHandler implements AuthenticationSuccessHandler
 
     private final JWTService jwtService;
     private final UserRepository userRepository;
-    private final ChatMessageRepo chatMessageRepo;
+    private final PrivateConversationTracker conversationTracker;
+    private final AccountDetailsService accountDetailsService;
     private final ObjectMapper objectMapper;
     private final S3Service s3Service;
+    private final UserDetailsCache userDetailsCache;
     @Value("${app.oauth2.redirect-url}")
     private String oauthRedirectUrl;
 
@@ -66,9 +70,9 @@ public class GoogleOAuth2SuccessHandler implements AuthenticationSuccessHandler
                 });
 
         if (!Boolean.TRUE.equals(user.getIsActive())) {
-            user.setIsActive(true);
-            userRepository.save(user);
+            accountDetailsService.accountReactivation(user);
         }
+        userDetailsCache.invalidate(email);
 
 
         String jwtToken = jwtService.generateToken(user);
@@ -80,7 +84,7 @@ public class GoogleOAuth2SuccessHandler implements AuthenticationSuccessHandler
                 .middleName(user.getMiddleName())
                 .lastName(user.getLastName())
                 .email(user.getEmail())
-                .chatsExist(chatMessageRepo.existsChatWithActiveRecipient(user.getUserId()))
+                .chatsExist(conversationTracker.hasActiveChatPartners(user.getUserId()))
                 .profileUrl(user.getProfile_url())
                 .build();
 
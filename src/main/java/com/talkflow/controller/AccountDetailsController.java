@@ -4,7 +4,7 @@ import com.talkflow.dto.ResponseDTO;
 import com.talkflow.dto.auth.PasswordChangeRequest;
 import com.talkflow.dto.auth.ProfileUpdateDTO;
 import com.talkflow.dto.auth.UserData;
-import com.talkflow.entity.auth.User;
+import com.talkflow.configuration.jwt.AuthenticatedUser;
 import com.talkflow.service.AccountDetailsService;
 import com.talkflow.util.ResponseBuilder;
 import lombok.RequiredArgsConstructor;
@@ -20,20 +20,20 @@ public class AccountDetailsController {
     private final AccountDetailsService accountDetailsService;
 
     @GetMapping("/details")
-    public ResponseEntity<ResponseDTO<UserData>> accountDetails(@AuthenticationPrincipal User user) {
-        UserData userData = accountDetailsService.accountDetails(user.getUserId());
+    public ResponseEntity<ResponseDTO<UserData>> accountDetails(@AuthenticationPrincipal AuthenticatedUser user) {
+        UserData userData = accountDetailsService.accountDetails(user.userId());
         return ResponseEntity.ok(ResponseBuilder.success(userData, "User details fetched successfully"));
     }
 
     @PostMapping("/deactivate")
-    public ResponseEntity<ResponseDTO<Object>> accountDeactivate(@AuthenticationPrincipal User user) {
-        accountDetailsService.accountDeactivation(user.getUserId());
+    public ResponseEntity<ResponseDTO<Object>> accountDeactivate(@AuthenticationPrincipal AuthenticatedUser user) {
+        accountDetailsService.accountDeactivation(user.userId());
         return ResponseEntity.ok(ResponseBuilder.success("Account Deactivated Successfully...!!"));
     }
 
     @PostMapping("/update-password")
-    public ResponseEntity<ResponseDTO<Object>> changePassword(@RequestBody PasswordChangeRequest changeRequest, @AuthenticationPrincipal User user) {
-        accountDetailsService.passwordUpdate(changeRequest, user);
+    public ResponseEntity<ResponseDTO<Object>> changePassword(@RequestBody PasswordChangeRequest changeRequest, @AuthenticationPrincipal AuthenticatedUser user) {
+        accountDetailsService.passwordUpdate(changeRequest, user.email());
         return ResponseEntity.ok(ResponseBuilder.success("Password updated successfully...!!"));
     }
     @PostMapping(value = "/update-profile", consumes = {"multipart/form-data"})
@@ -42,9 +42,9 @@ public class AccountDetailsController {
             @RequestPart(value = "middleName", required = false) String middleName,
             @RequestPart("lastName") String lastName,
             @RequestPart(value = "profileImage", required = false) MultipartFile profileImage,
-            @AuthenticationPrincipal User user
+            @AuthenticationPrincipal AuthenticatedUser user
     ) {
-        accountDetailsService.profileUpdate(firstName, middleName, lastName, profileImage, user);
+        accountDetailsService.profileUpdate(firstName, middleName, lastName, profileImage, user.email());
         return ResponseEntity.ok(ResponseBuilder.success("Profile updated successfully...!!"));
     }
 }
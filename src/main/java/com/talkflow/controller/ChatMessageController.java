@@ -3,7 +3,7 @@ package com.talkflow.controller;
 import com.talkflow.dto.ChatMessageDTO;
 import com.talkflow.dto.ChatPreviewDTO;
 import com.talkflow.dto.ResponseDTO;
-import com.talkflow.entity.auth.User;
+import com.talkflow.configuration.jwt.AuthenticatedUser;
 import com.talkflow.service.ChatMessageService;
 import com.talkflow.util.ResponseBuilder;
 import lombok.RequiredArgsConstructor;
@@ -23,15 +23,15 @@ public class ChatMessageController {
     private final ChatMessageService chatMessageService;
 
     @GetMapping("{recipientId}")
-    public ResponseEntity<ResponseDTO<List<ChatMessageDTO>>> getChatMessages(@AuthenticationPrincipal User sender, @PathVariable Long recipientId) {
-        List<ChatMessageDTO> messages = chatMessageService.getChatMessages(sender.getUserId(), recipientId);
+    public ResponseEntity<ResponseDTO<List<ChatMessageDTO>>> getChatMessages(@AuthenticationPrincipal AuthenticatedUser sender, @PathVariable Long recipientId) {
+        List<ChatMessageDTO> messages = chatMessageService.getChatMessages(sender.userId(), recipientId);
         ResponseDTO<List<ChatMessageDTO>> response = ResponseBuilder.success(messages, "Chat messages fetched successfully");
         return ResponseEntity.ok(response);
     }
 
     @GetMapping("previews")
-    public ResponseEntity<ResponseDTO<List<ChatPreviewDTO>>> getChatPreviews(@AuthenticationPrincipal User sender) {
-        List<ChatPreviewDTO> previews = chatMessageService.getChatPreviews(sender.getUserId());
+    public ResponseEntity<ResponseDTO<List<ChatPreviewDTO>>> getChatPreviews(@AuthenticationPrincipal AuthenticatedUser sender) {
+        List<ChatPreviewDTO> previews = chatMessageService.getChatPreviews(sender.userId());
         ResponseDTO<List<ChatPreviewDTO>> response = ResponseBuilder.success(previews, "Chat previews fetched successfully");
         return ResponseEntity.ok(response);
     }
@@ -4,7 +4,7 @@ import com.talkflow.dto.ResponseDTO;
 import com.talkflow.dto.auth.UserData;
 import com.talkflow.dto.userConnections.AllConnectionDTO;
 import com.talkflow.dto.userConnections.UserConnectionDTO;
-import com.talkflow.entity.auth.User;
+import com.talkflow.configuration.jwt.AuthenticatedUser;
 import com.talkflow.service.UserConnectionService;
 import com.talkflow.util.ResponseBuilder;
 import lombok.RequiredArgsConstructor;
@@ -24,38 +24,38 @@ public class UserConnectionController {
 
 
     @GetMapping("unconnected")
-    public ResponseEntity<ResponseDTO<List<UserData>>> getAllNonConnectedUsers(@AuthenticationPrincipal User currentUser) {
-        List<UserData> users = userConnectionService.getAllUnconnectedUser(currentUser.getUserId());
+    public ResponseEntity<ResponseDTO<List<UserData>>> getAllNonConnectedUsers(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        List<UserData> users = userConnectionService.getAllUnconnectedUser(currentUser.userId());
         return ResponseEntity.ok(ResponseBuilder.success(users, "Non-connected users fetched successfully"));
     }
 
     @GetMapping("connected")
-    public ResponseEntity<ResponseDTO<List<UserConnectionDTO>>> getAllAcceptedUsers(@AuthenticationPrincipal User currentUser) {
-        List<UserConnectionDTO> acceptedUsers = userConnectionService.getAllAcceptedRequest(currentUser.getUserId());
+    public ResponseEntity<ResponseDTO<List<UserConnectionDTO>>> getAllAcceptedUsers(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        List<UserConnectionDTO> acceptedUsers = userConnectionService.getAllAcceptedRequest(currentUser.userId());
         return ResponseEntity.ok(ResponseBuilder.success(acceptedUsers, "Accepted connections fetched successfully"));
     }
 
     @GetMapping("all")
-    public ResponseEntity<ResponseDTO<AllConnectionDTO>> getAllConnectedUsers(@AuthenticationPrincipal User currentUser) {
-        AllConnectionDTO allConnectionDetails = AllConnectionDTO.builder().acceptedList(userConnectionService.getAllAcceptedRequest(currentUser.getUserId())).pendingList(userConnectionService.getAllPendingRequest(currentUser.getUserId())).sentList(userConnectionService.getAllSentRequest(currentUser.getUserId())).blockedList(userConnectionService.getAllBlockedRequest(currentUser.getUserId())).build();
+    public ResponseEntity<ResponseDTO<AllConnectionDTO>> getAllConnectedUsers(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        AllConnectionDTO allConnectionDetails = AllConnectionDTO.builder().acceptedList(userConnectionService.getAllAcceptedRequest(currentUser.userId())).pendingList(userConnectionService.getAllPendingRequest(currentUser.userId())).sentList(userConnectionService.getAllSentRequest(currentUser.userId())).blockedList(userConnectionService.getAllBlockedRequest(currentUser.userId())).build();
         return ResponseEntity.ok(ResponseBuilder.success(allConnectionDetails, "All connection details fetched successfully"));
     }
 
     @PostMapping("add/{receiverid}")
-    public ResponseEntity<ResponseDTO<Object>> addNewConnection(@AuthenticationPrincipal User currentUser, @PathVariable("receiverid") Long receiverId) {
-        userConnectionService.addConnectionRequest(currentUser.getUserId(), receiverId);
+    public ResponseEntity<ResponseDTO<Object>> addNewConnection(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable("receiverid") Long receiverId) {
+        userConnectionService.addConnectionRequest(currentUser.userId(), receiverId);
         return ResponseEntity.status(HttpStatus.CREATED).body(ResponseBuilder.success("Connection request sent successfully"));
     }
 
     @PostMapping("blocked/{id}")
-    public ResponseEntity<ResponseDTO<Object>> blockedConnection(@AuthenticationPrincipal User currentUser, @PathVariable("id") Long id) {
-        userConnectionService.addBlockRequest(currentUser.getUserId(), id);
+    public ResponseEntity<ResponseDTO<Object>> blockedConnection(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable("id") Long id) {
+        userConnectionService.addBlockRequest(currentUser.userId(), id);
         return ResponseEntity.ok(ResponseBuilder.success("User blocked successfully"));
     }
 
     @PostMapping("update/{connectionid}/{status}")
-    public ResponseEntity<ResponseDTO<Object>> updateConnectionStatus(@AuthenticationPrincipal User currentUser, @PathVariable("connectionid") Long connectionId, @PathVariable("status") String status) {
-        userConnectionService.updateStatus(currentUser.getUserId(), connectionId, status);
+    public ResponseEntity<ResponseDTO<Object>> updateConnectionStatus(@AuthenticationPrincipal AuthenticatedUser currentUser, @PathVariable("connectionid") Long connectionId, @PathVariable("status") String status) {
+        userConnectionService.updateStatus(currentUser.userId(), connectionId, status);
         return ResponseEntity.ok(ResponseBuilder.success("Status of the connection updated"));
     }
 
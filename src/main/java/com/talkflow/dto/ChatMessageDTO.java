@@ -8,6 +8,7 @@ import java.time.LocalDateTime;
 @Data
 @Builder
 public class ChatMessageDTO {
+    private Long id;
     private String to;
     private String from;
     private String content;
@@ -0,0 +1,13 @@
+package com.talkflow.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ReceiptDTO {
+    private String chatId;
+    private Long userId;
+    private Long deliveredUpTo;
+    private Long readUpTo;
+}
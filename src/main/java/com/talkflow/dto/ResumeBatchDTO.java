@@ -0,0 +1,14 @@
+package com.talkflow.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ResumeBatchDTO {
+    private List<ResumedMessageDTO> messages;
+    private List<ReceiptDTO> receipts;
+    private boolean more;
+}
@@ -0,0 +1,20 @@
+package com.talkflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class ResumedMessageDTO {
+    private Long id;
+    private String chatId;
+    private String from;
+    private String to;
+    private Long groupId;
+    private String content;
+    private LocalDateTime timestamp;
+}
@@ -9,6 +9,7 @@ import java.time.LocalDateTime;
 @Data
 @Builder
 public class GroupChats {
+    private Long id;
     private Long groupId;
     private String chatId;
     private String content;
@@ -51,6 +51,16 @@ public class User implements UserDetails {
     @Column(nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
     private Boolean isVerified;
 
+    private LocalDateTime lastSeenAt;
+
+    // bumped when existing tokens must stop working, e.g. on password reset or deactivation
+    @Column(nullable = false, columnDefinition = "INT DEFAULT 0")
+    private int securityVersion;
+
+    // one-to-one conversations with an active counterpart; maintained in SQL by PrivateConversationTracker only
+    @Column(nullable = false, columnDefinition = "INT DEFAULT 0", insertable = false, updatable = false)
+    private int activeChatPartners;
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of();
@@ -1,5 +1,6 @@
 package com.talkflow.entity.chatMessage;
 
+import com.talkflow.entity.TimeSortedId;
 import com.talkflow.entity.auth.User;
 import com.talkflow.entity.group.Group;
 import jakarta.persistence.*;
@@ -17,7 +18,7 @@ import java.time.LocalDateTime;
 @Builder
 public class ChatMessage {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeSortedId
     private Long id;
 
     private String chatId;
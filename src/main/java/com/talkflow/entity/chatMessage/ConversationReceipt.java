@@ -0,0 +1,34 @@
+package com.talkflow.entity.chatMessage;
+
+import com.talkflow.entity.TimeSortedId;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "conversation_receipts", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "chat_id"}))
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class ConversationReceipt {
+    @Id
+    @TimeSortedId
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "chat_id", nullable = false)
+    private String chatId;
+
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long deliveredUpTo;
+
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long readUpTo;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,27 @@
+package com.talkflow.entity.chatMessage;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One row per one-to-one conversation, written when its first message is persisted. Lets the per-user
+ * active chat partner count be maintained without scanning chat_messages.
+ */
+@Entity
+@Table(name = "private_conversations", indexes = {@Index(columnList = "user_low"), @Index(columnList = "user_high")})
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class PrivateConversation {
+    @Id
+    @Column(name = "chat_id")
+    private String chatId;
+
+    @Column(name = "user_low", nullable = false)
+    private Long userLow;
+
+    @Column(name = "user_high", nullable = false)
+    private Long userHigh;
+}
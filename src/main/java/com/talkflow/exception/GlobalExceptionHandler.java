@@ -4,6 +4,7 @@ import com.talkflow.dto.ResponseDTO;
 import com.talkflow.util.ResponseBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.AuthenticationException;
@@ -44,6 +45,12 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(ResponseBuilder.error(ex.getMessage()), HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(HashingCapacityExceededException.class)
+    public ResponseEntity<ResponseDTO<Object>> handleHashingCapacityExceeded(HashingCapacityExceededException ex) {
+        log.warn("Password hashing saturated: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(ResponseBuilder.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(AuthenticationException.class)
     public ResponseEntity<ResponseDTO<Object>> handleAuthenticationException(AuthenticationException ex) {
         log.error("Authentication failed: {}", ex.getMessage());
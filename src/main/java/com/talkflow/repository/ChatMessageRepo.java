@@ -1,11 +1,14 @@
 package com.talkflow.repository;
 
+import com.talkflow.dto.ResumedMessageDTO;
 import com.talkflow.entity.chatMessage.ChatMessage;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -18,8 +21,11 @@ public interface ChatMessageRepo extends JpaRepository<ChatMessage, Long> {
     @Query("SELECT cm FROM ChatMessage cm WHERE cm.group.id = :groupId")
     List<ChatMessage> findChatsByGroupId(@Param("groupId") Long groupId);
 
-    @Query("SELECT COUNT(cm) > 0 FROM ChatMessage cm " + "JOIN cm.recipient r " + "WHERE (cm.sender.userId = :userId OR cm.recipient.userId = :userId) " + "AND cm.sender IS NOT NULL AND cm.recipient IS NOT NULL " + "AND r.isActive = true")
-    boolean existsChatWithActiveRecipient(@Param("userId") Long userId);
+    @Query("SELECT new com.talkflow.dto.ResumedMessageDTO(cm.id, cm.chatId, s.email, r.email, g.id, cm.content, cm.timestamp) FROM ChatMessage cm " + "JOIN cm.sender s LEFT JOIN cm.recipient r LEFT JOIN cm.group g " + "WHERE cm.chatId = :chatId AND cm.id > :afterId ORDER BY cm.id")
+    List<ResumedMessageDTO> findResumeByChatId(@Param("chatId") String chatId, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT new com.talkflow.dto.ResumedMessageDTO(cm.id, cm.chatId, s.email, r.email, g.id, cm.content, cm.timestamp) FROM ChatMessage cm " + "JOIN cm.sender s LEFT JOIN cm.recipient r LEFT JOIN cm.group g " + "WHERE cm.id > :afterId AND (s.userId = :userId OR r.userId = :userId OR g.id IN :groupIds) ORDER BY cm.id")
+    List<ResumedMessageDTO> findResumeForUser(@Param("userId") Long userId, @Param("groupIds") Collection<Long> groupIds, @Param("afterId") Long afterId, Limit limit);
 
 
 }
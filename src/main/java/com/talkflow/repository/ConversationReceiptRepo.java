@@ -0,0 +1,13 @@
+package com.talkflow.repository;
+
+import com.talkflow.entity.chatMessage.ConversationReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ConversationReceiptRepo extends JpaRepository<ConversationReceipt, Long> {
+    List<ConversationReceipt> findByChatIdIn(Collection<String> chatIds);
+}
@@ -32,6 +32,24 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.userId IN :ids AND u.isVerified = true")
     List<User> getAllUsersById(@Param("ids") Iterable<Long> ids);
 
+    @Query("SELECT u.userId, u.lastSeenAt FROM User u WHERE u.userId IN :ids")
+    List<Object[]> findLastSeenByUserIds(@Param("ids") Iterable<Long> ids);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :password WHERE u.email = :email")
+    int updatePassword(@Param("email") String email, @Param("password") String password);
+
+    @Query("SELECT u.securityVersion FROM User u WHERE u.userId = :userId")
+    Optional<Integer> findSecurityVersion(@Param("userId") Long userId);
+
+    @Query("SELECT u.activeChatPartners FROM User u WHERE u.userId = :userId")
+    Optional<Integer> findActiveChatPartners(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE User u SET u.isActive = true WHERE u.userId = :userId AND u.isActive = false")
+    int reactivate(@Param("userId") Long userId);
+
 
 
 
@@ -14,11 +14,17 @@ import java.util.List;
 public interface GroupMemberRepo extends JpaRepository<GroupMember,Long> {
     List<GroupMember> findAllByGroupId(Long groupId);
 
+    @Query("SELECT gm.user.userId FROM GroupMember gm WHERE gm.group.id = :groupId")
+    List<Long> findMemberIdsByGroupId(@Param("groupId") Long groupId);
+
     @Query("SELECT COUNT(gm) > 0 FROM GroupMember gm " +
             "WHERE gm.group.id = :groupId AND gm.user.userId = :userId ")
     boolean existsByGroupIdAndUserId(@Param("groupId") Long groupId,
                                      @Param("userId") Long userId);
 
+    @Query("SELECT gm.group.id FROM GroupMember gm WHERE gm.user.userId = :userId")
+    List<Long> findGroupIdsByUserId(@Param("userId") Long userId);
+
     @Query("SELECT DISTINCT gm.group FROM GroupMember gm WHERE gm.user.userId = :userId")
     List<Group> findAllGroupByUserId(@Param("userId") Long userId);
 
@@ -0,0 +1,69 @@
+package com.talkflow.scheduler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off backfill of private_conversations and users.active_chat_partners from existing chat_messages.
+ * Enable with app.chat.partner-backfill.enabled=true for one start, then turn it off again. Works in
+ * keyset chunks and recomputes counts absolutely, so it can be re-run and tolerates live traffic.
+ */
+@Slf4j
+@Component
+public class ChatPartnerBackfill {
+
+    private static final String NEXT_MESSAGE_BOUND = "SELECT MAX(id) FROM (SELECT id FROM chat_messages WHERE id > ? ORDER BY id LIMIT ?) t";
+    private static final String INSERT_CONVERSATIONS = "INSERT IGNORE INTO private_conversations (chat_id, user_low, user_high) "
+            + "SELECT chat_id, MIN(LEAST(sender_id, recipient_id)), MIN(GREATEST(sender_id, recipient_id)) FROM chat_messages "
+            + "WHERE id > ? AND id <= ? AND group_id IS NULL AND sender_id IS NOT NULL AND recipient_id IS NOT NULL AND sender_id <> recipient_id "
+            + "GROUP BY chat_id";
+    private static final String NEXT_USER_BOUND = "SELECT MAX(user_id) FROM (SELECT user_id FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?) t";
+    private static final String RECOUNT_USERS = "UPDATE users u LEFT JOIN ("
+            + "SELECT x.user_id, COUNT(*) AS partners FROM ("
+            + "SELECT user_low AS user_id, user_high AS partner_id FROM private_conversations WHERE user_low > ? AND user_low <= ? "
+            + "UNION ALL SELECT user_high, user_low FROM private_conversations WHERE user_high > ? AND user_high <= ?) x "
+            + "JOIN users p ON p.user_id = x.partner_id AND p.is_active = true GROUP BY x.user_id) t ON t.user_id = u.user_id "
+            + "SET u.active_chat_partners = COALESCE(t.partners, 0) WHERE u.user_id > ? AND u.user_id <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    public ChatPartnerBackfill(JdbcTemplate jdbcTemplate,
+                               @Value("${app.chat.partner-backfill.enabled:false}") boolean enabled,
+                               @Value("${app.chat.partner-backfill.chunk-size:5000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            Thread.ofVirtual().name("chat-partner-backfill").start(this::run);
+        }
+    }
+
+    public void run() {
+        try {
+            long conversations = 0;
+            long from = Long.MIN_VALUE;
+            for (Long to; (to = jdbcTemplate.queryForObject(NEXT_MESSAGE_BOUND, Long.class, from, chunkSize)) != null; from = to) {
+                conversations += jdbcTemplate.update(INSERT_CONVERSATIONS, from, to);
+            }
+
+            long users = 0;
+            from = Long.MIN_VALUE;
+            for (Long to; (to = jdbcTemplate.queryForObject(NEXT_USER_BOUND, Long.class, from, chunkSize)) != null; from = to) {
+                users += jdbcTemplate.update(RECOUNT_USERS, from, to, from, to, from, to);
+            }
+            log.info("Chat partner backfill done: {} conversations added, {} users recounted", conversations, users);
+        } catch (RuntimeException e) {
+            log.error("Chat partner backfill failed: {}", e.getMessage(), e);
+        }
+    }
+}
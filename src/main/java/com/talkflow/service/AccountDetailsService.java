@@ -1,12 +1,17 @@
 package com.talkflow.service;
 
 
+import com.talkflow.cache.UserDetailsCache;
+import com.talkflow.configuration.jwt.SecurityVersionTable;
+import com.talkflow.configuration.jwt.TokenRevocationList;
 import com.talkflow.dto.auth.PasswordChangeRequest;
 import com.talkflow.dto.auth.ProfileUpdateDTO;
 import com.talkflow.dto.auth.UserData;
 import com.talkflow.entity.auth.AuthProvider;
 import com.talkflow.entity.auth.User;
 import com.talkflow.repository.auth.UserRepository;
+import com.talkflow.util.TransactionCallbacks;
+import com.talkflow.websocket.SessionPrincipalRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -24,6 +29,11 @@ public class AccountDetailsService {
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private  final S3Service s3Service;
+    private final SessionPrincipalRegistry sessionPrincipals;
+    private final TokenRevocationList tokenRevocations;
+    private final UserDetailsCache userDetailsCache;
+    private final SecurityVersionTable securityVersions;
+    private final PrivateConversationTracker conversationTracker;
 
     public UserData accountDetails(Long currentUserId) {
         User user = userRepository.findById(currentUserId).orElseThrow(() -> new EntityNotFoundException("User does not exist"));
@@ -32,17 +42,36 @@ public class AccountDetailsService {
 
     }
 
+    // only the login that actually flips is_active moves the partners' chat counters, in the same transaction
+    @Transactional
+    public void accountReactivation(User user) {
+        if (userRepository.reactivate(user.getUserId()) == 1) {
+            conversationTracker.userReactivated(user.getUserId());
+        }
+        user.setIsActive(true);
+        TransactionCallbacks.afterCommit(() -> userDetailsCache.invalidate(user.getEmail()));
+    }
+
     @Transactional
     public void accountDeactivation(Long currentUserId) {
         User user = userRepository.findById(currentUserId).orElseThrow(() -> new EntityNotFoundException("User does not exist"));
         user.setIsActive(false);
+        user.setSecurityVersion(user.getSecurityVersion() + 1);
         userRepository.save(user);
+        conversationTracker.userDeactivated(currentUserId);
+        TransactionCallbacks.afterCommit(() -> {
+            securityVersions.invalidate(currentUserId);
+            sessionPrincipals.invalidate(currentUserId);
+            tokenRevocations.revokeIssuedUntilNow(currentUserId);
+            userDetailsCache.invalidate(user.getEmail());
+        });
 
     }
 
 
     @Transactional
-    public void passwordUpdate(PasswordChangeRequest request, User user) {
+    public void passwordUpdate(PasswordChangeRequest request, String email) {
+        User user = userRepository.findByEmail(email).orElseThrow(() -> new EntityNotFoundException("User does not exist"));
 
 
         if (user.getAuthProvider() != null && user.getAuthProvider() == AuthProvider.GOOGLE) {
@@ -59,12 +88,19 @@ public class AccountDetailsService {
 
 
         user.setPassword(passwordEncoder.encode(request.getUpdatePassword()));
+        // like a reset, a new password ends every token issued before it, including a stolen one
+        user.setSecurityVersion(user.getSecurityVersion() + 1);
         userRepository.save(user);
+        TransactionCallbacks.afterCommit(() -> {
+            securityVersions.invalidate(user.getUserId());
+            userDetailsCache.invalidate(user.getEmail());
+        });
     }
 
     @Transactional
     public void profileUpdate(String firstName, String middleName, String lastName,
-                              MultipartFile profileImage, User user) {
+                              MultipartFile profileImage, String email) {
+        User user = userRepository.findByEmail(email).orElseThrow(() -> new EntityNotFoundException("User does not exist"));
         user.setFirstName(firstName);
         user.setMiddleName(middleName);
         user.setLastName(lastName);
@@ -90,6 +126,10 @@ public class AccountDetailsService {
         }
 
         userRepository.save(user);
+        TransactionCallbacks.afterCommit(() -> {
+            sessionPrincipals.invalidate(user.getUserId());
+            userDetailsCache.invalidate(user.getEmail());
+        });
     }
 
 }
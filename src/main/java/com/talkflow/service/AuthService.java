@@ -1,6 +1,8 @@
 package com.talkflow.service;
 
+import com.talkflow.cache.UserDetailsCache;
 import com.talkflow.configuration.jwt.JWTService;
+import com.talkflow.configuration.jwt.SecurityVersionTable;
 import com.talkflow.dto.auth.AuthenticationRequest;
 import com.talkflow.dto.auth.AuthenticationResponse;
 import com.talkflow.dto.auth.RegisterRequest;
@@ -9,9 +11,9 @@ import com.talkflow.entity.auth.AuthProvider;
 import com.talkflow.entity.auth.User;
 import com.talkflow.entity.auth.VerificationToken;
 import com.talkflow.exception.CustomEmailExistException;
-import com.talkflow.repository.ChatMessageRepo;
 import com.talkflow.repository.auth.UserRepository;
 import com.talkflow.repository.auth.VerificationTokenRepository;
+import com.talkflow.util.TransactionCallbacks;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,9 +39,12 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JWTService jwtService;
     private final AuthenticationManager authenticationManager;
-    private final ChatMessageRepo chatMessageRepo;
+    private final PrivateConversationTracker conversationTracker;
+    private final AccountDetailsService accountDetailsService;
     private final VerificationTokenRepository verificationTokenRepository;
     private final EmailSender emailSender;
+    private final UserDetailsCache userDetailsCache;
+    private final SecurityVersionTable securityVersions;
 
     private String generateOTP(int length) {
         StringBuilder token = new StringBuilder(length);
@@ -99,6 +104,7 @@ public class AuthService {
         user.setIsVerified(true);
         userRepository.save(user);
         verificationTokenRepository.delete(vToken);
+        TransactionCallbacks.afterCommit(() -> userDetailsCache.invalidate(user.getEmail()));
 
         var jwtToken = jwtService.generateToken(user);
         return buildAuthResponse(user, jwtToken);
@@ -175,8 +181,13 @@ public class AuthService {
 
         User user = vToken.getUser();
         user.setPassword(passwordEncoder.encode(newPassword));
+        user.setSecurityVersion(user.getSecurityVersion() + 1);
         userRepository.save(user);
         verificationTokenRepository.delete(vToken);
+        TransactionCallbacks.afterCommit(() -> {
+            securityVersions.invalidate(user.getUserId());
+            userDetailsCache.invalidate(user.getEmail());
+        });
 
         return "Password successfully updated.";
     }
@@ -188,13 +199,13 @@ public class AuthService {
         );
 
         var user = (User) authentication.getPrincipal();
-        var jwtToken = jwtService.generateToken(user);
 
         if (!Boolean.TRUE.equals(user.getIsActive())) {
-            user.setIsActive(true);
-            userRepository.save(user);
+            accountDetailsService.accountReactivation(user);
         }
 
+        var jwtToken = jwtService.generateToken(user);
+
         return buildAuthResponse(user, jwtToken);
     }
 
@@ -206,7 +217,7 @@ public class AuthService {
                 .middleName(user.getMiddleName())
                 .lastName(user.getLastName())
                 .email(user.getEmail())
-                .chatsExist(chatMessageRepo.existsChatWithActiveRecipient(user.getUserId()))
+                .chatsExist(conversationTracker.hasActiveChatPartners(user.getUserId()))
                 .profileUrl(user.getProfile_url())
                 .canChangePassword(user.getAuthProvider().equals(AuthProvider.LOCAL))
                 .build();
@@ -2,13 +2,19 @@ package com.talkflow.service;
 
 import com.talkflow.dto.ChatMessageDTO;
 import com.talkflow.dto.ChatPreviewDTO;
+import com.talkflow.dto.ReceiptDTO;
+import com.talkflow.dto.ResumeBatchDTO;
+import com.talkflow.dto.ResumedMessageDTO;
 import com.talkflow.entity.auth.User;
 import com.talkflow.entity.chatMessage.ChatMessage;
 import com.talkflow.entity.connection.UserConnection;
 import com.talkflow.repository.ChatMessageRepo;
+import com.talkflow.repository.ConversationReceiptRepo;
 import com.talkflow.repository.UserConnectionRepo;
 import com.talkflow.repository.auth.UserRepository;
+import com.talkflow.repository.group.GroupMemberRepo;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -22,6 +28,8 @@ public class ChatMessageService {
     private final ChatMessageRepo chatMessageRepo;
     private final UserConnectionRepo userConnectionRepo;
     private final UserRepository userRepository;
+    private final GroupMemberRepo groupMemberRepo;
+    private final ConversationReceiptRepo conversationReceiptRepo;
 
     public List<ChatPreviewDTO> getChatPreviews(Long userId) {
         User currentUser = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("Current user not found"));
@@ -69,13 +77,48 @@ public class ChatMessageService {
         List<ChatMessage> chatMessages = chatMessageRepo.findByChatId(chatId);
         List<ChatMessageDTO> chatMessageDTOList = new ArrayList<>();
         for (ChatMessage cm : chatMessages) {
-            chatMessageDTOList.add(ChatMessageDTO.builder().from(cm.getSender().getEmail()).to(cm.getRecipient().getEmail()).content(cm.getContent()).timestamp(cm.getTimestamp()).build());
+            chatMessageDTOList.add(ChatMessageDTO.builder().id(cm.getId()).from(cm.getSender().getEmail()).to(cm.getRecipient().getEmail()).content(cm.getContent()).timestamp(cm.getTimestamp()).build());
 
         }
         return chatMessageDTOList;
     }
 
 
+    /**
+     * Messages newer than the client's cursors, oldest first and at most limit of them, plus the
+     * receipts of the conversations involved. Either per-conversation cursors or one global cursor
+     * (message ids are time-ordered) is used; the caller has checked the user belongs to each chat and
+     * has already moved the cursors back for messages that became visible out of id order.
+     */
+    public ResumeBatchDTO resume(Long userId, Map<String, Long> cursors, Long since, int limit) {
+        List<ResumedMessageDTO> messages = new ArrayList<>();
+        if (since != null) {
+            List<Long> groupIds = groupMemberRepo.findGroupIdsByUserId(userId);
+            // an empty IN list is not valid SQL; no group has id 0
+            messages.addAll(chatMessageRepo.findResumeForUser(userId, groupIds.isEmpty() ? List.of(0L) : groupIds, since, Limit.of(limit + 1)));
+        } else {
+            for (Map.Entry<String, Long> cursor : cursors.entrySet()) {
+                int remaining = limit + 1 - messages.size();
+                if (remaining <= 0) break;
+                messages.addAll(chatMessageRepo.findResumeByChatId(cursor.getKey(), cursor.getValue(), Limit.of(remaining)));
+            }
+        }
+
+        boolean more = messages.size() > limit;
+        if (more) {
+            messages = new ArrayList<>(messages.subList(0, limit));
+        }
+
+        Set<String> chatIds = new HashSet<>(cursors.keySet());
+        messages.forEach(message -> chatIds.add(message.getChatId()));
+        List<ReceiptDTO> receipts = chatIds.isEmpty() ? List.of() : conversationReceiptRepo.findByChatIdIn(chatIds).stream()
+                .map(receipt -> ReceiptDTO.builder().chatId(receipt.getChatId()).userId(receipt.getUserId()).deliveredUpTo(receipt.getDeliveredUpTo()).readUpTo(receipt.getReadUpTo()).build())
+                .collect(Collectors.toList());
+
+        return ResumeBatchDTO.builder().messages(messages).receipts(receipts).more(more).build();
+    }
+
+
     private String createChatId(Long senderId, Long recipientId) {
         if (senderId > recipientId) {
             return recipientId + "_" + senderId;
@@ -0,0 +1,285 @@
+package com.talkflow.service;
+
+import com.talkflow.entity.TimeSortedIdGenerator;
+import com.talkflow.entity.chatMessage.ChatMessage;
+import com.talkflow.repository.ChatMessageRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Persists chat messages either synchronously or, with app.chat.write-behind.enabled, through a bounded
+ * queue that one flusher inserts in JDBC batches through a stateless session. A single flusher keeps every
+ * conversation in arrival order. A message that fails on its own is retried with backoff; once it runs out
+ * of attempts the dropped-message listener is told, since its echo has already reached the clients.
+ */
+@Service
+public class ChatMessageWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatMessageWriter.class);
+
+    private final ChatMessageRepo chatMessageRepo;
+    private final PrivateConversationTracker conversationTracker;
+    private final SessionFactory sessionFactory;
+    private final boolean writeBehind;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+    private final BlockingQueue<ChatMessage> queue;
+    private final AtomicInteger unflushed = new AtomicInteger();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+
+    private final Timer flushLatency;
+    private final DistributionSummary flushedBatchSize;
+    private final Counter failedMessages;
+    private final Counter retriedMessages;
+
+    // touched by the flusher thread only
+    private final List<Retry> retries = new ArrayList<>();
+    private volatile Consumer<ChatMessage> droppedListener = chatMessage -> {
+    };
+
+    private volatile boolean running = true;
+    private Thread flusher;
+
+    public ChatMessageWriter(ChatMessageRepo chatMessageRepo, PrivateConversationTracker conversationTracker, EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry,
+                             @Value("${app.chat.write-behind.enabled:false}") boolean writeBehind,
+                             @Value("${app.chat.write-behind.queue-capacity:10000}") int queueCapacity,
+                             @Value("${app.chat.write-behind.batch-size:200}") int batchSize,
+                             @Value("${app.chat.write-behind.flush-interval-ms:50}") long flushIntervalMs,
+                             @Value("${app.chat.write-behind.max-attempts:5}") int maxAttempts) {
+        this.chatMessageRepo = chatMessageRepo;
+        this.conversationTracker = conversationTracker;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.writeBehind = writeBehind;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("talkflow.chat.write-behind.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.flushLatency = Timer.builder("talkflow.chat.write-behind.flush").publishPercentiles(0.5, 0.99).register(meterRegistry);
+        this.flushedBatchSize = DistributionSummary.builder("talkflow.chat.write-behind.batch.size").register(meterRegistry);
+        this.failedMessages = Counter.builder("talkflow.chat.write-behind.failed").register(meterRegistry);
+        this.retriedMessages = Counter.builder("talkflow.chat.write-behind.retried").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (writeBehind) {
+            flusher = Thread.ofPlatform().name("chat-message-flusher").daemon().start(this::runFlusher);
+        }
+    }
+
+    public void persist(ChatMessage chatMessage) {
+        if (!writeBehind) {
+            chatMessageRepo.save(chatMessage);
+            trackConversations(List.of(chatMessage));
+            return;
+        }
+        // assigned up front so callers can hand the id to clients before the row exists
+        chatMessage.setId(TimeSortedIdGenerator.nextId());
+        unflushed.incrementAndGet();
+        queued.incrementAndGet();
+        try {
+            queue.put(chatMessage);
+        } catch (InterruptedException e) {
+            unflushed.decrementAndGet();
+            processed.incrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing chat message", e);
+        }
+    }
+
+    public void onDropped(Consumer<ChatMessage> listener) {
+        this.droppedListener = listener;
+    }
+
+    public int unflushed() {
+        return unflushed.get();
+    }
+
+    public boolean awaitFlushed(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (unflushed.get() > 0) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until every message queued before this call has been written (or given up on), so a
+     * read that follows sees them. Unlike awaitFlushed it does not wait for messages queued later.
+     */
+    public boolean awaitQueuedFlushed(Duration timeout) throws InterruptedException {
+        if (!writeBehind) return true;
+        long target = queued.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (processed.get() < target) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.join(Duration.ofSeconds(30));
+        }
+    }
+
+    private void runFlusher() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long remaining = deadline - System.nanoTime();
+                        if (batch.size() >= batchSize || remaining <= 0 || !running) break;
+                        ChatMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (next == null) break;
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+            retryDue(true);
+        }
+        retryDue(false);
+    }
+
+    private void flush(List<ChatMessage> batch) {
+        long start = System.nanoTime();
+        int written = batch.size();
+        try {
+            insert(batch);
+            trackConversations(batch);
+        } catch (RuntimeException e) {
+            logger.error("Batch insert of {} chat messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (ChatMessage chatMessage : batch) {
+                try {
+                    insert(List.of(chatMessage));
+                    trackConversations(List.of(chatMessage));
+                } catch (RuntimeException single) {
+                    written--;
+                    retryLater(chatMessage, 1, single);
+                }
+            }
+        }
+        flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        flushedBatchSize.record(batch.size());
+        unflushed.addAndGet(-written);
+        // a message waiting for a retry no longer holds up readers of what was queued before it
+        processed.addAndGet(batch.size());
+    }
+
+    // while running only retries that are due; on the way out every retry gets one last attempt
+    private void retryDue(boolean onlyDue) {
+        if (retries.isEmpty()) return;
+        long now = System.nanoTime();
+        List<Retry> due = new ArrayList<>();
+        retries.removeIf(retry -> (!onlyDue || retry.dueAt() - now <= 0) && due.add(retry));
+        for (Retry retry : due) {
+            ChatMessage chatMessage = retry.chatMessage();
+            try {
+                insert(List.of(chatMessage));
+                trackConversations(List.of(chatMessage));
+                unflushed.decrementAndGet();
+            } catch (RuntimeException e) {
+                if (onlyDue) {
+                    retryLater(chatMessage, retry.attempts() + 1, e);
+                } else {
+                    drop(chatMessage, e);
+                }
+            }
+        }
+    }
+
+    private void retryLater(ChatMessage chatMessage, int attempts, RuntimeException cause) {
+        if (attempts >= maxAttempts) {
+            drop(chatMessage, cause);
+            return;
+        }
+        retriedMessages.increment();
+        long backoffMs = Math.min(30_000L, 500L << attempts);
+        logger.warn("Chat message {} in {} failed (attempt {}), retrying in {}ms: {}", chatMessage.getId(), chatMessage.getChatId(), attempts, backoffMs, cause.getMessage());
+        retries.add(new Retry(chatMessage, attempts, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs)));
+    }
+
+    private void drop(ChatMessage chatMessage, RuntimeException cause) {
+        failedMessages.increment();
+        unflushed.decrementAndGet();
+        logger.error("Dropping chat message {} in {}: {}", chatMessage.getId(), chatMessage.getChatId(), cause.getMessage());
+        try {
+            droppedListener.accept(chatMessage);
+        } catch (RuntimeException e) {
+            logger.error("Could not report dropped chat message {}: {}", chatMessage.getId(), e.getMessage());
+        }
+    }
+
+    private void insert(List<ChatMessage> messages) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.setJdbcBatchSize(batchSize);
+            Transaction transaction = session.beginTransaction();
+            try {
+                messages.forEach(session::insert);
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) transaction.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // runs after the rows are committed and must never fail them, or a retry would insert them twice
+    private void trackConversations(List<ChatMessage> messages) {
+        for (ChatMessage chatMessage : messages) {
+            if (chatMessage.getGroup() != null || chatMessage.getRecipient() == null || chatMessage.getSender() == null) continue;
+            try {
+                conversationTracker.messagePersisted(chatMessage.getChatId(), chatMessage.getSender().getUserId(), chatMessage.getRecipient().getUserId());
+            } catch (RuntimeException e) {
+                logger.error("Could not record conversation {}: {}", chatMessage.getChatId(), e.getMessage());
+            }
+        }
+    }
+
+    private record Retry(ChatMessage chatMessage, int attempts, long dueAt) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.talkflow.service;
+
+import com.talkflow.entity.TimeSortedIdGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivered and read watermarks per user and conversation. Acks only ever move a watermark forward;
+ * the latest one per conversation is kept in memory and all of them are upserted in one batch per
+ * flush interval, so writes grow with active conversations rather than with messages.
+ */
+@Service
+public class ConversationReceiptService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationReceiptService.class);
+
+    private static final String UPSERT = "INSERT INTO conversation_receipts (id, user_id, chat_id, delivered_up_to, read_up_to, updated_at) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE delivered_up_to = GREATEST(delivered_up_to, VALUES(delivered_up_to)), "
+            + "read_up_to = GREATEST(read_up_to, VALUES(read_up_to)), updated_at = VALUES(updated_at)";
+
+    private final Map<ReceiptKey, Watermark> latest = new ConcurrentHashMap<>();
+    private final Map<ReceiptKey, Watermark> unsaved = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduledExecutorService realtimeScheduler;
+    private final long flushIntervalMs;
+    private final int maxTracked;
+    private final long maxClockSkewMs;
+    private final Counter acks;
+    private final DistributionSummary flushedBatchSize;
+
+    private ScheduledFuture<?> flush;
+
+    public ConversationReceiptService(JdbcTemplate jdbcTemplate, ScheduledExecutorService realtimeScheduler, MeterRegistry meterRegistry,
+                                      @Value("${app.chat.receipts.flush-interval-ms:1000}") long flushIntervalMs,
+                                      @Value("${app.chat.receipts.max-tracked:100000}") int maxTracked,
+                                      @Value("${app.chat.receipts.max-clock-skew-ms:5000}") long maxClockSkewMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.realtimeScheduler = realtimeScheduler;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxTracked = maxTracked;
+        this.maxClockSkewMs = maxClockSkewMs;
+        Gauge.builder("talkflow.chat.receipts.unsaved", unsaved, Map::size).register(meterRegistry);
+        this.acks = Counter.builder("talkflow.chat.receipts.acks").register(meterRegistry);
+        this.flushedBatchSize = DistributionSummary.builder("talkflow.chat.receipts.batch.size").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        flush = realtimeScheduler.scheduleAtFixedRate(() -> Thread.ofVirtual().name("receipt-flush").start(this::flush),
+                flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flush != null) flush.cancel(false);
+        flush();
+    }
+
+    /**
+     * Whether the acked ids can name messages that exist. Watermarks never move back, so an id beyond
+     * every id issued so far would mark all future messages as read for good. Messages still queued for
+     * write-behind already have their ids, so the bound is the id clock rather than the stored rows.
+     */
+    public boolean isIssued(long deliveredUpTo, long readUpTo) {
+        long latest = TimeSortedIdGenerator.latestBy(maxClockSkewMs);
+        return deliveredUpTo >= 0 && readUpTo >= 0 && deliveredUpTo <= latest && readUpTo <= latest;
+    }
+
+    /**
+     * Applies a cumulative ack and returns the resulting watermark, or null when it moved nothing
+     * forward. Reading a message implies it was delivered. Acks for ids that were never issued are
+     * ignored.
+     */
+    public Watermark acknowledge(long userId, String chatId, long deliveredUpTo, long readUpTo) {
+        if (!isIssued(deliveredUpTo, readUpTo)) return null;
+        acks.increment();
+        ReceiptKey key = new ReceiptKey(userId, chatId);
+        Watermark requested = new Watermark(Math.max(deliveredUpTo, readUpTo), readUpTo);
+        Watermark[] advanced = new Watermark[1];
+        latest.compute(key, (k, current) -> {
+            Watermark merged = current == null ? requested : current.max(requested);
+            if (!merged.equals(current)) {
+                advanced[0] = merged;
+                unsaved.merge(k, merged, Watermark::max);
+            }
+            return merged;
+        });
+        return advanced[0];
+    }
+
+    private void flush() {
+        // the in-memory view only suppresses repeated acks; the upsert keeps stored values monotonic
+        if (latest.size() > maxTracked) {
+            latest.keySet().removeIf(key -> !unsaved.containsKey(key));
+        }
+        List<Object[]> batch = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        unsaved.forEach((key, watermark) -> {
+            if (unsaved.remove(key, watermark)) {
+                batch.add(new Object[]{TimeSortedIdGenerator.nextId(), key.userId(), key.chatId(), watermark.deliveredUpTo(), watermark.readUpTo(), now});
+            }
+        });
+        if (batch.isEmpty()) return;
+        try {
+            jdbcTemplate.batchUpdate(UPSERT, batch);
+            flushedBatchSize.record(batch.size());
+        } catch (RuntimeException e) {
+            logger.error("Saving {} conversation receipts failed, retrying next flush: {}", batch.size(), e.getMessage());
+            for (Object[] row : batch) {
+                unsaved.merge(new ReceiptKey((Long) row[1], (String) row[2]), new Watermark((Long) row[3], (Long) row[4]), Watermark::max);
+            }
+        }
+    }
+
+    public record Watermark(long deliveredUpTo, long readUpTo) {
+        Watermark max(Watermark other) {
+            return new Watermark(Math.max(deliveredUpTo, other.deliveredUpTo), Math.max(readUpTo, other.readUpTo));
+        }
+    }
+
+    private record ReceiptKey(long userId, String chatId) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.talkflow.service;
 
 
+import com.talkflow.cache.GroupMembershipIndex;
 import com.talkflow.dto.auth.UserData;
 import com.talkflow.dto.group.GroupChats;
 import com.talkflow.dto.group.GroupRequest;
@@ -14,6 +15,7 @@ import com.talkflow.repository.UserConnectionRepo;
 import com.talkflow.repository.auth.UserRepository;
 import com.talkflow.repository.group.GroupMemberRepo;
 import com.talkflow.repository.group.GroupRepo;
+import com.talkflow.util.TransactionCallbacks;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
@@ -32,12 +34,13 @@ public class GroupChatService {
     private final UserRepository userRepository;
     private final UserConnectionRepo userConnectionRepo;
     private final ChatMessageRepo chatMessageRepo;
+    private final GroupMembershipIndex groupMembershipIndex;
 
     @Transactional
-    public Group createGroup(GroupRequest request, User creator) {
+    public Group createGroup(GroupRequest request, Long creatorId) {
 
 
-        User creatorUser = userRepository.findById(creator.getUserId()).orElseThrow(() -> new RuntimeException("Creator not found"));
+        User creatorUser = userRepository.findById(creatorId).orElseThrow(() -> new RuntimeException("Creator not found"));
 
         if (!Boolean.TRUE.equals(creatorUser.getIsActive())) {
             throw new RuntimeException("Your account is deactivated");
@@ -49,6 +52,7 @@ public class GroupChatService {
         GroupMember member = GroupMember.builder().group(group).user(creatorUser).build();
 
         groupMemberRepo.save(member);
+        TransactionCallbacks.afterCommit(() -> groupMembershipIndex.groupCreated(group.getId(), creatorUser.getUserId()));
 
         return group;
     }
@@ -89,6 +93,7 @@ public class GroupChatService {
         GroupMember member = GroupMember.builder().group(group).user(userToAdd).build();
 
         groupMemberRepo.save(member);
+        TransactionCallbacks.afterCommit(() -> groupMembershipIndex.memberAdded(groupId, userToAdd.getUserId()));
     }
 
 
@@ -171,7 +176,7 @@ public class GroupChatService {
         for (ChatMessage cm : chatMessages) {
             User sender = cm.getSender();
 
-            groupChats.add(GroupChats.builder().groupId(cm.getGroup().getId()).chatId(cm.getChatId()).timestamp(cm.getTimestamp()).content(cm.getContent()).from(sender.getEmail()).user(UserData.builder().firstName(sender.getFirstName()).middleName(sender.getMiddleName()).lastName(sender.getLastName()).email(sender.getEmail()).profileUrl(sender.getProfile_url()).build()).build());
+            groupChats.add(GroupChats.builder().id(cm.getId()).groupId(cm.getGroup().getId()).chatId(cm.getChatId()).timestamp(cm.getTimestamp()).content(cm.getContent()).from(sender.getEmail()).user(UserData.builder().firstName(sender.getFirstName()).middleName(sender.getMiddleName()).lastName(sender.getLastName()).email(sender.getEmail()).profileUrl(sender.getProfile_url()).build()).build());
 
         }
         return groupChats;
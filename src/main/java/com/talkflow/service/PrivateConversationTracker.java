@@ -0,0 +1,76 @@
+package com.talkflow.service;
+
+import com.talkflow.cache.BoundedTtlCache;
+import com.talkflow.repository.auth.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Maintains users.active_chat_partners, the number of one-to-one conversations a user has with an active
+ * counterpart, so login can answer chatsExist with a primary-key read. The count goes up when a
+ * conversation's first message is persisted and moves for all partners when a user is deactivated or
+ * reactivated.
+ */
+@Service
+public class PrivateConversationTracker {
+
+    private static final String INSERT_CONVERSATION = "INSERT IGNORE INTO private_conversations (chat_id, user_low, user_high) VALUES (?, ?, ?)";
+    private static final String INCREMENT_IF_PARTNER_ACTIVE = "UPDATE users u JOIN users p ON p.user_id = ? "
+            + "SET u.active_chat_partners = u.active_chat_partners + 1 WHERE u.user_id = ? AND p.is_active = true";
+    private static final String SHIFT_PARTNERS = "UPDATE users u JOIN private_conversations c "
+            + "ON u.user_id = CASE WHEN c.user_low = ? THEN c.user_high ELSE c.user_low END "
+            + "SET u.active_chat_partners = GREATEST(u.active_chat_partners + ?, 0) WHERE c.user_low = ? OR c.user_high = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final BoundedTtlCache<String, Boolean> knownConversations;
+
+    public PrivateConversationTracker(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, UserRepository userRepository,
+                                      MeterRegistry meterRegistry, @Value("${app.chat.known-conversations.max-entries:100000}") int maxEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        // its own transaction even if a caller has one open, so a conversation is only cached once it is committed
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.userRepository = userRepository;
+        this.knownConversations = new BoundedTtlCache<>("known-conversations", maxEntries, known -> Duration.ofHours(1), meterRegistry);
+    }
+
+    /**
+     * Cheap after the first message of a conversation: only a cache lookup. The conversation row and both
+     * counters commit together; a row without its increments would make every later insert a no-op and
+     * leave the counts wrong for good.
+     */
+    public void messagePersisted(String chatId, long senderId, long recipientId) {
+        if (senderId == recipientId || knownConversations.getIfPresent(chatId) != null) return;
+
+        transactionTemplate.executeWithoutResult(status -> {
+            int inserted = jdbcTemplate.update(INSERT_CONVERSATION, chatId, Math.min(senderId, recipientId), Math.max(senderId, recipientId));
+            if (inserted == 1) {
+                jdbcTemplate.batchUpdate(INCREMENT_IF_PARTNER_ACTIVE, List.of(new Object[]{recipientId, senderId}, new Object[]{senderId, recipientId}));
+            }
+        });
+        knownConversations.put(chatId, Boolean.TRUE);
+    }
+
+    // run inside the transaction that changes is_active, and only when it actually changes
+    public void userDeactivated(long userId) {
+        jdbcTemplate.update(SHIFT_PARTNERS, userId, -1, userId, userId);
+    }
+
+    public void userReactivated(long userId) {
+        jdbcTemplate.update(SHIFT_PARTNERS, userId, 1, userId, userId);
+    }
+
+    public boolean hasActiveChatPartners(Long userId) {
+        return userRepository.findActiveChatPartners(userId).orElse(0) > 0;
+    }
+}
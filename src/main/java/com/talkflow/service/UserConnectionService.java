@@ -1,5 +1,6 @@
 package com.talkflow.service;
 
+import com.talkflow.cache.ConnectionPermissionCache;
 import com.talkflow.dto.auth.UserData;
 import com.talkflow.dto.userConnections.UserConnectionDTO;
 import com.talkflow.entity.auth.User;
@@ -7,6 +8,7 @@ import com.talkflow.entity.connection.ConnectionStatus;
 import com.talkflow.entity.connection.UserConnection;
 import com.talkflow.repository.UserConnectionRepo;
 import com.talkflow.repository.auth.UserRepository;
+import com.talkflow.util.TransactionCallbacks;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -25,6 +27,7 @@ public class UserConnectionService {
     private static final Logger logger = LoggerFactory.getLogger(UserConnectionService.class);
     private final UserConnectionRepo userConnectionRepo;
     private final UserRepository userRepository;
+    private final ConnectionPermissionCache connectionPermissions;
 
     @Transactional
     public void addConnectionRequest(Long senderId, Long receiverId) {
@@ -46,6 +49,7 @@ public class UserConnectionService {
         });
 
         Optional<UserConnection> userConnection = userConnectionRepo.areUserConnected(senderId, receiverId);
+        invalidatePermission(senderId, receiverId);
 
         if (userConnection.isPresent()) {
             UserConnection existingConnection = userConnection.get();
@@ -90,6 +94,7 @@ public class UserConnectionService {
         });
 
         Optional<UserConnection> userConnection = userConnectionRepo.areUserConnected(senderId, receiverId);
+        invalidatePermission(senderId, receiverId);
 
         if (userConnection.isPresent()) {
             UserConnection existingConnection = userConnection.get();
@@ -134,6 +139,7 @@ public class UserConnectionService {
 
         Long senderId = connection.getSenderId();
         Long receiverId = connection.getReceiverId();
+        invalidatePermission(senderId, receiverId);
 
 
         if (!currentUserId.equals(senderId) && !currentUserId.equals(receiverId)) {
@@ -207,6 +213,12 @@ public class UserConnectionService {
     }
 
 
+    // evict now so the change applies immediately, and again after commit so a concurrent read cannot re-cache the old state
+    private void invalidatePermission(Long userId1, Long userId2) {
+        connectionPermissions.invalidate(userId1, userId2);
+        TransactionCallbacks.afterCommit(() -> connectionPermissions.invalidate(userId1, userId2));
+    }
+
     public List<UserConnectionDTO> getAllSentRequest(Long currentUserId) {
         List<UserConnection> userConnections = userConnectionRepo.getAllSentRequest(currentUserId);
 
@@ -0,0 +1,133 @@
+package com.talkflow.websocket;
+
+import com.talkflow.websocket.cluster.InvalidationBus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks calls between two users from call-request until accept/decline/end. Every ring times out on the
+ * shared realtime scheduler unless the call moves on first, which cancels the timeout.
+ * <p>
+ * A call lives on the caller's node, where the request came in. The callee may answer on another node,
+ * so accept and end are also published to the other nodes, and the caller's node cancels its timeout.
+ */
+@Component
+public class CallSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallSessionRegistry.class);
+    private static final String TOPIC = "calls";
+
+    private final Map<String, Call> calls = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService realtimeScheduler;
+    private final InvalidationBus invalidationBus;
+    private final long ringTimeoutMs;
+
+    public CallSessionRegistry(ScheduledExecutorService realtimeScheduler, InvalidationBus invalidationBus, MeterRegistry meterRegistry,
+                               @Value("${app.websocket.call.ring-timeout-ms:20000}") long ringTimeoutMs) {
+        this.realtimeScheduler = realtimeScheduler;
+        this.invalidationBus = invalidationBus;
+        this.ringTimeoutMs = ringTimeoutMs;
+        Gauge.builder("talkflow.calls.active", this, r -> r.count(CallState.RINGING)).tag("state", "ringing").register(meterRegistry);
+        Gauge.builder("talkflow.calls.active", this, r -> r.count(CallState.ACCEPTED)).tag("state", "accepted").register(meterRegistry);
+        invalidationBus.subscribe(TOPIC, change -> {
+            String[] parts = change.split("\n", 3);
+            if (parts.length < 3) return;
+            if ("accepted".equals(parts[0])) {
+                acceptLocally(parts[1], parts[2]);
+            } else {
+                endLocally(parts[1], parts[2]);
+            }
+        });
+    }
+
+    public void ringing(String callerEmail, String calleeEmail, Runnable onTimeout) {
+        Call call = new Call(callerEmail, calleeEmail);
+        // registered before the timeout exists, so even a timeout that fires at once finds the call
+        Call previous = calls.put(key(callerEmail, calleeEmail), call);
+        if (previous != null) {
+            previous.finish(CallState.ENDED);
+        }
+        // an accept that lands before the timeout is assigned cannot cancel it, so the state decides instead
+        call.timeout = realtimeScheduler.schedule(() -> {
+            if (call.state.compareAndSet(CallState.RINGING, CallState.TIMED_OUT)) {
+                calls.remove(key(callerEmail, calleeEmail), call);
+                onTimeout.run();
+            }
+        }, ringTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void accepted(String email1, String email2) {
+        acceptLocally(email1, email2);
+        invalidationBus.publish(TOPIC, "accepted\n" + email1 + "\n" + email2);
+    }
+
+    public void ended(String email1, String email2) {
+        endLocally(email1, email2);
+        invalidationBus.publish(TOPIC, "ended\n" + email1 + "\n" + email2);
+    }
+
+    // the user's last session closed; nobody is left to send call-end for these calls
+    public void endAll(String email) {
+        calls.values().removeIf(call -> {
+            if (!call.callerEmail.equals(email) && !call.calleeEmail.equals(email)) return false;
+            call.finish(CallState.ENDED);
+            logger.info("Call between {} and {} ended on disconnect", call.callerEmail, call.calleeEmail);
+            return true;
+        });
+    }
+
+    private void acceptLocally(String email1, String email2) {
+        Call call = calls.get(key(email1, email2));
+        if (call != null && call.state.compareAndSet(CallState.RINGING, CallState.ACCEPTED)) {
+            call.cancelTimeout();
+        }
+    }
+
+    private void endLocally(String email1, String email2) {
+        Call call = calls.remove(key(email1, email2));
+        if (call != null) {
+            call.finish(CallState.ENDED);
+        }
+    }
+
+    public long count(CallState state) {
+        return calls.values().stream().filter(call -> call.state.get() == state).count();
+    }
+
+    private static String key(String email1, String email2) {
+        return email1.compareTo(email2) < 0 ? email1 + "|" + email2 : email2 + "|" + email1;
+    }
+
+    private static class Call {
+        private final String callerEmail;
+        private final String calleeEmail;
+        private final AtomicReference<CallState> state = new AtomicReference<>(CallState.RINGING);
+        private volatile ScheduledFuture<?> timeout;
+
+        Call(String callerEmail, String calleeEmail) {
+            this.callerEmail = callerEmail;
+            this.calleeEmail = calleeEmail;
+        }
+
+        void cancelTimeout() {
+            ScheduledFuture<?> pending = timeout;
+            if (pending != null) pending.cancel(false);
+        }
+
+        void finish(CallState finalState) {
+            state.set(finalState);
+            cancelTimeout();
+        }
+    }
+}
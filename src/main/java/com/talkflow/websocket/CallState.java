@@ -0,0 +1,5 @@
+package com.talkflow.websocket;
+
+public enum CallState {
+    RINGING, ACCEPTED, ENDED, TIMED_OUT
+}
@@ -1,51 +1,94 @@
 package com.talkflow.websocket;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.talkflow.dto.ResumeBatchDTO;
+import com.talkflow.cache.ConnectionPermissionCache;
+import com.talkflow.cache.GroupMembershipIndex;
+import com.talkflow.entity.TimeSortedIdGenerator;
 import com.talkflow.entity.chatMessage.ChatMessage;
 import com.talkflow.entity.chatMessage.MessageType;
-import com.talkflow.repository.ChatMessageRepo;
-import com.talkflow.repository.UserConnectionRepo;
 import com.talkflow.repository.auth.UserRepository;
-import com.talkflow.repository.group.GroupMemberRepo;
 import com.talkflow.repository.group.GroupRepo;
+import com.talkflow.service.ChatMessageService;
+import com.talkflow.service.ChatMessageWriter;
+import com.talkflow.service.ConversationReceiptService;
+import com.talkflow.websocket.InboundFrame.Ack;
+import com.talkflow.websocket.InboundFrame.CallSignal;
+import com.talkflow.websocket.InboundFrame.GroupMessage;
+import com.talkflow.websocket.InboundFrame.PresenceUpdate;
+import com.talkflow.websocket.InboundFrame.PrivateMessage;
+import com.talkflow.websocket.InboundFrame.Resume;
+import com.talkflow.websocket.InboundFrame.RtcSignal;
+import com.talkflow.websocket.InboundFrame.Typing;
+import com.talkflow.websocket.cluster.MessageBus;
+import com.talkflow.websocket.cluster.SessionRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 @Component
 @RequiredArgsConstructor
 public class ChatWebSocketHandler extends TextWebSocketHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketHandler.class);
+    private static final String OUTBOUND_ATTRIBUTE = "outbound";
+    private static final String RATE_LIMITS_ATTRIBUTE = "rateLimits";
+    private static final String RESUMED_ATTRIBUTE = "resumed";
 
-    private final Map<String, List<WebSocketSession>> sessions = new ConcurrentHashMap<>();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // dates come out as ISO strings, the same as in the REST responses
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
 
-    private final ChatMessageRepo chatMessageRepo;
+    private final ChatMessageWriter chatMessageWriter;
     private final UserRepository userRepository;
-    private final UserConnectionRepo userConnectionRepo;
-    private final GroupMemberRepo groupMemberRepo;
+    private final ConnectionPermissionCache connectionPermissions;
     private final GroupRepo groupRepo;
+    private final GroupMembershipIndex groupMembershipIndex;
+    private final OutboundSessionFactory outboundSessionFactory;
+    private final SessionPrincipalRegistry sessionPrincipals;
+    private final CallSessionRegistry callSessions;
+    private final ConversationDispatcher dispatcher;
+    private final FrameDecoder frameDecoder;
+    private final SessionRegistry sessionRegistry;
+    private final MessageBus messageBus;
+    private final PresenceTracker presenceTracker;
+    private final TypingIndicators typingIndicators;
+    private final ConversationReceiptService receiptService;
+    private final ChatMessageService chatMessageService;
+    private final InboundRateLimiter rateLimiter;
+    private final HeartbeatMonitor heartbeatMonitor;
+
+    @Value("${app.websocket.resume.max-messages:200}")
+    private int resumeMaxMessages;
+
+    @Value("${app.websocket.resume.hold-back-ms:10000}")
+    private long resumeHoldBackMs;
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        String username = (String) session.getAttributes().get("username");
-
-        if (username != null) {
-            sessions.computeIfAbsent(username, k -> new CopyOnWriteArrayList<>()).add(session);
-            logger.info("User connected: {} (sessions={})", username, sessions.get(username).size());
+        if (session.getAttributes().get(SessionPrincipal.ATTRIBUTE) instanceof SessionPrincipal principal) {
+            sessionPrincipals.register(principal);
+            OutboundSession outbound = outboundSessionFactory.decorate(session);
+            session.getAttributes().put(OUTBOUND_ATTRIBUTE, outbound);
+            session.getAttributes().put(RATE_LIMITS_ATTRIBUTE, rateLimiter.open(principal.userId()));
+            sessionRegistry.register(principal, outbound);
+            heartbeatMonitor.track(outbound);
+            presenceTracker.connected(principal.userId());
+            Thread.ofVirtual().start(() -> presenceTracker.sendSnapshot(principal.userId(), outbound));
+            logger.info("User connected: {} (sessions={})", principal.email(), sessionRegistry.localSessions(principal.userId()).size());
         } else {
             logger.error("No username found in attributes — closing connection");
             session.close(CloseStatus.POLICY_VIOLATION.withReason("User not authenticated"));
@@ -54,144 +97,412 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        JsonNode jsonMessage = objectMapper.readTree(message.getPayload());
-        String messageType = jsonMessage.has("type") ? jsonMessage.get("type").asText() : "private";
+        heartbeatMonitor.seen(session.getId());
+        if (!(session.getAttributes().get(RATE_LIMITS_ATTRIBUTE) instanceof InboundRateLimiter.SessionLimits limits)) return;
+        if (!rateLimiter.allowFrame(limits)) {
+            rejectRateLimited(session, limits, null);
+            return;
+        }
 
-        switch (messageType) {
-            case "group":
-                handleGroupMessage(session, jsonMessage);
-                break;
-            case "call-request":
-            case "call-accept":
-            case "call-decline":
-            case "call-end":
-                handleCallSignal(session, jsonMessage);
-                break;
-            case "signal":
-                handleWebRTCSignal(session, jsonMessage);
-                break;
-            default:
-                handlePrivateMessage(session, jsonMessage);
-                break;
+        InboundFrame frame;
+        try {
+            frame = frameDecoder.decode(message);
+        } catch (InvalidFrameException e) {
+            logger.warn("Rejected frame from session {}: {}", session.getId(), e.getMessage());
+            if (e.isTooLarge()) {
+                session.close(CloseStatus.TOO_BIG_TO_PROCESS);
+            } else {
+                sendError(session, "Malformed message");
+            }
+            return;
+        }
+
+        RateCategory category = RateCategory.of(frame);
+        if (!rateLimiter.allow(limits, category)) {
+            rejectRateLimited(session, limits, category);
+            return;
+        }
+
+        if (!dispatcher.dispatch(conversationKey(session, frame), () -> handleFrame(session, frame))) {
+            logger.warn("Dispatch saturated, rejecting {} from session {}", frame.getClass().getSimpleName(), session.getId());
+            sendError(session, "Server busy, message was not processed");
+        }
+    }
+
+    private void rejectRateLimited(WebSocketSession session, InboundRateLimiter.SessionLimits limits, RateCategory category) throws IOException {
+        if (rateLimiter.strike(limits)) {
+            logger.warn("Closing session {}: too many rate-limited frames", session.getId());
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("Rate limit exceeded"));
+            return;
+        }
+        if (session.getAttributes().get(OUTBOUND_ATTRIBUTE) instanceof OutboundSession outbound) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("type", "error");
+            payload.put("reason", "rate-limited");
+            payload.put("category", category != null ? category.name().toLowerCase() : "frames");
+            payload.put("retryAfterMs", rateLimiter.retryAfterMillis(limits, category));
+            outbound.send(OutboundFrame.encode(objectMapper, payload, FrameKind.EPHEMERAL));
+        }
+    }
+
+    private void handleFrame(WebSocketSession session, InboundFrame frame) {
+        try {
+            routeFrame(session, frame);
+        } catch (Exception e) {
+            // same outcome as an exception escaping handleTextMessage on the I/O thread
+            logger.error("Error handling {} from session {}: {}", frame.getClass().getSimpleName(), session.getId(), e.getMessage());
+            try {
+                session.close(CloseStatus.SERVER_ERROR);
+            } catch (IOException closeError) {
+                logger.error("Error closing session {}: {}", session.getId(), closeError.getMessage());
+            }
         }
     }
 
-    private void handlePrivateMessage(WebSocketSession session, JsonNode jsonMessage) {
-        String senderEmail = (String) session.getAttributes().get("username");
-        if (senderEmail == null) return;
+    private void routeFrame(WebSocketSession session, InboundFrame frame) throws IOException, InterruptedException {
+        switch (frame) {
+            case GroupMessage groupMessage -> handleGroupMessage(session, groupMessage);
+            case CallSignal callSignal -> handleCallSignal(session, callSignal);
+            case RtcSignal rtcSignal -> handleWebRTCSignal(rtcSignal);
+            case PresenceUpdate presenceUpdate -> handlePresenceUpdate(session, presenceUpdate);
+            case Typing typing -> handleTyping(session, typing);
+            case Ack ack -> handleAck(session, ack);
+            case Resume resume -> handleResume(session, resume);
+            case PrivateMessage privateMessage -> handlePrivateMessage(session, privateMessage);
+        }
+    }
 
-        String recipientEmail = jsonMessage.get("to").asText();
-        String content = jsonMessage.get("content").asText();
+    private void handlePrivateMessage(WebSocketSession session, PrivateMessage message) {
+        SessionPrincipal sender = sessionPrincipals.resolve(session);
+        if (sender == null) return;
+        if (!sender.active()) {
+            logger.error("Private message rejected: account {} is deactivated", sender.email());
+            return;
+        }
 
-        var sender = userRepository.findByEmail(senderEmail).orElseThrow();
-        var recipient = userRepository.findByEmail(recipientEmail).orElseThrow(() -> new RuntimeException("Recipient not found"));
+        var recipient = userRepository.findByEmail(message.to()).orElseThrow(() -> new RuntimeException("Recipient not found"));
 
-        if (userConnectionRepo.findAcceptedConnectionBetween(sender.getUserId(), recipient.getUserId()).isEmpty()) {
+        if (!connectionPermissions.canMessage(sender.userId(), recipient.getUserId())) {
             logger.error("Private messaging not allowed without accepted connection.");
             return;
         }
 
-        var chatMessage = ChatMessage.builder().chatId(createChatId(sender.getUserId(), recipient.getUserId())).sender(sender).recipient(recipient).content(content).type(MessageType.TEXT).build();
-        chatMessageRepo.save(chatMessage);
+        var chatMessage = ChatMessage.builder().chatId(createChatId(sender.userId(), recipient.getUserId())).sender(userRepository.getReferenceById(sender.userId())).recipient(recipient).content(message.content()).type(MessageType.TEXT).build();
+        chatMessageWriter.persist(chatMessage);
 
-        sendToUser(senderEmail, jsonMessage);
-        sendToUser(recipientEmail, jsonMessage);
+        messageBus.sendToUsers(new long[]{sender.userId(), recipient.getUserId()}, withMessageId(message.raw(), chatMessage));
     }
 
-    private void handleGroupMessage(WebSocketSession session, JsonNode jsonMessage) {
-        String senderEmail = (String) session.getAttributes().get("username");
-        if (senderEmail == null) {
+    private void handleGroupMessage(WebSocketSession session, GroupMessage message) {
+        SessionPrincipal sender = sessionPrincipals.resolve(session);
+        if (sender == null) {
             logger.error("Group message sender not authenticated");
             return;
         }
+        if (!sender.active()) {
+            logger.error("Group message rejected: account {} is deactivated", sender.email());
+            return;
+        }
 
-        long groupId = jsonMessage.get("groupId").asLong();
-        String content = jsonMessage.get("content").asText();
+        long groupId = message.groupId();
+        long[] memberIds = groupMembershipIndex.members(groupId);
 
-        var sender = userRepository.findByEmail(senderEmail).orElseThrow();
-        var group = groupRepo.findById(groupId).orElseThrow();
+        if (Arrays.binarySearch(memberIds, sender.userId()) < 0) {
+            logger.error("Group message rejected: {} is not a member of group {}", sender.email(), groupId);
+            return;
+        }
 
-        var chatMessage = ChatMessage.builder().chatId("group_" + groupId).sender(sender).group(group).content(content).type(MessageType.TEXT).build();
-        chatMessageRepo.save(chatMessage);
+        var chatMessage = ChatMessage.builder().chatId("group_" + groupId).sender(userRepository.getReferenceById(sender.userId())).group(groupRepo.getReferenceById(groupId)).content(message.content()).type(MessageType.TEXT).build();
+        chatMessageWriter.persist(chatMessage);
 
-        groupMemberRepo.findAllByGroupId(groupId).forEach(member -> sendToUser(member.getUser().getEmail(), jsonMessage));
+        messageBus.sendToUsers(memberIds, withMessageId(message.raw(), chatMessage));
     }
 
-    private void handleWebRTCSignal(WebSocketSession session, JsonNode jsonMessage) {
-        String recipientEmail = jsonMessage.has("to") ? jsonMessage.get("to").asText() : null;
-        if (recipientEmail != null) {
-            sendToUser(recipientEmail, jsonMessage);
+    // the echo has already gone out under this id; tell everyone who got it that the message was never stored
+    private void messageDropped(ChatMessage chatMessage) {
+        long[] recipientIds = chatMessage.getGroup() != null
+                ? groupMembershipIndex.members(chatMessage.getGroup().getId())
+                : new long[]{chatMessage.getSender().getUserId(), chatMessage.getRecipient().getUserId()};
+        try {
+            Map<String, Object> payload = Map.of("type", "message-failed", "id", chatMessage.getId(), "chatId", chatMessage.getChatId());
+            messageBus.sendToUsers(recipientIds, OutboundFrame.encode(objectMapper, payload, FrameKind.CHAT));
+        } catch (IOException e) {
+            logger.error("Error encoding failure of message {}: {}", chatMessage.getId(), e.getMessage());
         }
     }
 
-    private void handleCallSignal(WebSocketSession session, JsonNode jsonMessage) {
-        String recipientEmail = jsonMessage.get("to").asText();
-        String type = jsonMessage.get("type").asText();
-        String callerEmail = (String) session.getAttributes().get("username");
+    private void handleWebRTCSignal(RtcSignal signal) {
+        if (signal.to() != null) {
+            sendToUser(signal.to(), new OutboundFrame(signal.raw(), FrameKind.CHAT));
+        }
+    }
 
-        if ("call-request".equals(type)) {
-            if (!sessions.containsKey(recipientEmail) || sessions.get(recipientEmail).isEmpty()) {
-
-                new Timer().schedule(new TimerTask() {
-                    @Override
-                    public void run() {
-                        // If still offline after 20 seconds, notify caller
-                        if (!sessions.containsKey(recipientEmail) || sessions.get(recipientEmail).isEmpty()) {
-                            Map<String, String> endPayload = new HashMap<>();
-                            endPayload.put("type", "call-end");
-                            endPayload.put("to", callerEmail);
-                            endPayload.put("reason", "Recipient not available");
-
-                            sendToUser(callerEmail, endPayload);
-                            logger.info("Call ended automatically — recipient still offline after 20s");
-                        }
-                    }
-                }, 20_000);
+    // replaces refetching whole histories over REST after a reconnect; the client repeats with newer cursors while more is true.
+    // Ids are assigned before commit and interleave across nodes, so a message can become visible after a newer one the client
+    // already has: the first resume of a session starts hold-back-ms before the cursors and the client drops ids it has seen.
+    // Later pages start exactly at the cursors; anything committed since the session registered arrives live.
+    private void handleResume(WebSocketSession session, Resume resume) {
+        SessionPrincipal principal = sessionPrincipals.resolve(session);
+        if (principal == null || !(session.getAttributes().get(OUTBOUND_ATTRIBUTE) instanceof OutboundSession outbound)) return;
+
+        boolean holdBack = session.getAttributes().putIfAbsent(RESUMED_ATTRIBUTE, Boolean.TRUE) == null;
+        Map<String, Long> cursors = new LinkedHashMap<>();
+        resume.cursors().forEach((chatId, afterId) -> {
+            if (participantsOtherThan(principal.userId(), chatId) != null) {
+                cursors.put(chatId, holdBack && afterId != null ? TimeSortedIdGenerator.earlierBy(afterId, resumeHoldBackMs) : afterId);
+            } else {
+                logger.warn("Resume cursor rejected: {} is not part of chat {}", principal.email(), chatId);
             }
+        });
+
+        Long since = holdBack && resume.since() != null ? TimeSortedIdGenerator.earlierBy(resume.since(), resumeHoldBackMs) : resume.since();
+        // waiting for the write-behind flush here would hold up every conversation that shares the stripe
+        String stripeKey = conversationKey(session, resume);
+        Thread.ofVirtual().name("resume-" + session.getId()).start(() -> replay(session, outbound, principal, cursors, since, stripeKey));
+    }
+
+    private void replay(WebSocketSession session, OutboundSession outbound, SessionPrincipal principal, Map<String, Long> cursors, Long since, String stripeKey) {
+        try {
+            // messages still in the write-behind queue would otherwise be missing from the replay
+            if (!chatMessageWriter.awaitQueuedFlushed(Duration.ofSeconds(2))) {
+                logger.warn("Resuming {} before queued messages were flushed", principal.email());
+            }
+            ResumeBatchDTO batch = chatMessageService.resume(principal.userId(), cursors, since, resumeMaxMessages);
+
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("type", "resume");
+            payload.put("messages", batch.getMessages());
+            payload.put("receipts", batch.getReceipts());
+            payload.put("more", batch.isMore());
+            OutboundFrame frame = OutboundFrame.encode(objectMapper, payload, FrameKind.CHAT);
+            // back on the stripe, so the page is sent in order with the frames handled after the resume
+            if (!dispatcher.dispatch(stripeKey, () -> outbound.send(frame))) {
+                logger.warn("Dispatch saturated, dropping resume page for session {}", session.getId());
+                sendError(session, "Server busy, message was not processed");
+            }
+        } catch (Exception e) {
+            logger.error("Error resuming session {}: {}", session.getId(), e.getMessage());
+            try {
+                session.close(CloseStatus.SERVER_ERROR);
+            } catch (IOException closeError) {
+                logger.error("Error closing session {}: {}", session.getId(), closeError.getMessage());
+            }
+        }
+    }
+
+    // clients ack by message id, so the echo carries the id the message was stored under
+    private OutboundFrame withMessageId(TextMessage raw, ChatMessage chatMessage) {
+        try {
+            return OutboundFrame.withFields(objectMapper, raw, Map.of("id", chatMessage.getId(), "chatId", chatMessage.getChatId()), FrameKind.CHAT);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding message " + chatMessage.getId(), e);
+        }
+    }
+
+    private void handleAck(WebSocketSession session, Ack ack) throws IOException {
+        SessionPrincipal reader = sessionPrincipals.resolve(session);
+        if (reader == null) return;
+
+        long[] otherParties = participantsOtherThan(reader.userId(), ack.chatId());
+        if (otherParties == null) {
+            logger.warn("Ack rejected: {} is not part of chat {}", reader.email(), ack.chatId());
+            return;
+        }
+        if (!receiptService.isIssued(ack.delivered(), ack.read())) {
+            logger.warn("Ack rejected: {} acknowledged ids {}/{} in chat {} that were never issued", reader.email(), ack.delivered(), ack.read(), ack.chatId());
+            sendError(session, "Acknowledged message id does not exist");
+            return;
         }
 
-        sendToUser(recipientEmail, jsonMessage);
+        var watermark = receiptService.acknowledge(reader.userId(), ack.chatId(), ack.delivered(), ack.read());
+        if (watermark != null && otherParties.length > 0) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("type", "receipt");
+            payload.put("chatId", ack.chatId());
+            payload.put("userId", reader.userId());
+            payload.put("deliveredUpTo", watermark.deliveredUpTo());
+            payload.put("readUpTo", watermark.readUpTo());
+            // receipts are cumulative, so a dropped one is superseded by the next
+            messageBus.sendToUsers(otherParties, OutboundFrame.encode(objectMapper, payload, FrameKind.EPHEMERAL));
+        }
     }
 
-    private void sendToUser(String email, Object payload) {
-        List<WebSocketSession> userSessions = sessions.get(email);
-        if (userSessions != null) {
-            for (WebSocketSession ws : userSessions) {
-                if (ws.isOpen()) {
-                    try {
-                        ws.sendMessage(new TextMessage(objectMapper.writeValueAsString(payload)));
-                    } catch (IOException e) {
-                        logger.error("Error sending message to {}: {}", email, e.getMessage());
-                    }
-                }
+    // null when the user does not take part in the chat
+    private long[] participantsOtherThan(long userId, String chatId) {
+        try {
+            if (chatId.startsWith("group_")) {
+                long[] memberIds = groupMembershipIndex.members(Long.parseLong(chatId.substring("group_".length())));
+                if (Arrays.binarySearch(memberIds, userId) < 0) return null;
+                return Arrays.stream(memberIds).filter(memberId -> memberId != userId).toArray();
             }
+            String[] ids = chatId.split("_");
+            if (ids.length != 2) return null;
+            long first = Long.parseLong(ids[0]);
+            long second = Long.parseLong(ids[1]);
+            if (!chatId.equals(createChatId(first, second))) return null;
+            if (first == userId) return new long[]{second};
+            if (second == userId) return new long[]{first};
+            return null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // typing state is only fanned out, never persisted; a recipient who is offline simply misses it
+    private void handleTyping(WebSocketSession session, Typing typing) {
+        SessionPrincipal sender = sessionPrincipals.resolve(session);
+        if (sender == null || !sender.active()) return;
+
+        long[] recipientIds;
+        String conversation;
+        if (typing.groupId() != null) {
+            long[] memberIds = groupMembershipIndex.members(typing.groupId());
+            if (Arrays.binarySearch(memberIds, sender.userId()) < 0) return;
+            recipientIds = Arrays.stream(memberIds).filter(memberId -> memberId != sender.userId()).toArray();
+            conversation = "group_" + typing.groupId();
+        } else {
+            Long recipientId = sessionRegistry.onlineUserId(typing.to());
+            if (recipientId == null || !connectionPermissions.canMessage(sender.userId(), recipientId)) return;
+            recipientIds = new long[]{recipientId};
+            conversation = createChatId(sender.userId(), recipientId);
+        }
+
+        typingIndicators.update(sender.userId(), conversation, typing.typing(), isTyping -> {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("type", "typing");
+            payload.put("from", sender.email());
+            if (typing.groupId() != null) {
+                payload.put("groupId", typing.groupId());
+            } else {
+                payload.put("to", typing.to());
+            }
+            payload.put("state", isTyping ? "start" : "stop");
+            try {
+                messageBus.sendToUsers(recipientIds, OutboundFrame.encode(objectMapper, payload, FrameKind.EPHEMERAL));
+            } catch (IOException e) {
+                logger.error("Error encoding typing indicator from {}: {}", sender.email(), e.getMessage());
+            }
+        });
+    }
+
+    private void handlePresenceUpdate(WebSocketSession session, PresenceUpdate update) {
+        SessionPrincipal principal = sessionPrincipals.resolve(session);
+        if (principal != null) {
+            presenceTracker.away(principal.userId(), "away".equalsIgnoreCase(update.state()));
+        }
+    }
+
+    private void handleCallSignal(WebSocketSession session, CallSignal signal) {
+        String recipientEmail = signal.to();
+        String callerEmail = (String) session.getAttributes().get("username");
+
+        switch (signal.type()) {
+            case "call-request":
+                // every ring times out; the timeout fires on the shared timer, and the online check may ask the cluster broker
+                callSessions.ringing(callerEmail, recipientEmail, () -> Thread.ofVirtual().start(() -> ringTimedOut(callerEmail, recipientEmail)));
+                break;
+            case "call-accept":
+                callSessions.accepted(callerEmail, recipientEmail);
+                break;
+            default:
+                callSessions.ended(callerEmail, recipientEmail);
+                break;
+        }
+
+        sendToUser(recipientEmail, new OutboundFrame(signal.raw(), FrameKind.CHAT));
+    }
+
+    // the caller learns why the call ended; an online callee that never answered stops ringing
+    private void ringTimedOut(String callerEmail, String recipientEmail) {
+        boolean recipientOnline = isOnline(recipientEmail);
+        sendCallEnd(callerEmail, recipientEmail, recipientOnline ? "No answer" : "Recipient not available");
+        if (recipientOnline) {
+            sendCallEnd(recipientEmail, callerEmail, "No answer");
+        }
+        logger.info("Call from {} to {} ended automatically after ring timeout (recipient {})", callerEmail, recipientEmail, recipientOnline ? "online" : "offline");
+    }
+
+    private void sendCallEnd(String to, String from, String reason) {
+        Map<String, String> endPayload = new HashMap<>();
+        endPayload.put("type", "call-end");
+        endPayload.put("to", to);
+        endPayload.put("from", from);
+        endPayload.put("reason", reason);
+        try {
+            sendToUser(to, OutboundFrame.encode(objectMapper, endPayload, FrameKind.CHAT));
+        } catch (IOException e) {
+            logger.error("Error encoding call-end for {}: {}", to, e.getMessage());
+        }
+    }
+
+    private boolean isOnline(String email) {
+        Long userId = sessionRegistry.onlineUserId(email);
+        return userId != null && sessionRegistry.isOnline(userId);
+    }
+
+    private void sendToUser(String email, OutboundFrame frame) {
+        Long userId = sessionRegistry.onlineUserId(email);
+        if (userId != null) {
+            messageBus.sendToUser(userId, frame);
         } else {
             logger.info("User offline: {}", email);
         }
     }
 
+    @PostConstruct
+    public void start() {
+        chatMessageWriter.onDropped(this::messageDropped);
+    }
+
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        heartbeatMonitor.seen(session.getId());
+    }
+
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        UserDetails userDetails = extractUserDetails(session);
-        if (userDetails != null) {
-            String username = userDetails.getUsername();
-            List<WebSocketSession> userSessions = sessions.get(username);
-
-            if (userSessions != null) {
-                userSessions.remove(session);
-                if (userSessions.isEmpty()) {
-                    sessions.remove(username);
-                }
+        heartbeatMonitor.untrack(session.getId());
+        if (session.getAttributes().get(RATE_LIMITS_ATTRIBUTE) instanceof InboundRateLimiter.SessionLimits limits) {
+            rateLimiter.close(limits);
+        }
+        if (session.getAttributes().get(SessionPrincipal.ATTRIBUTE) instanceof SessionPrincipal principal) {
+            if (sessionRegistry.unregister(principal, session.getId())) {
+                presenceTracker.disconnected(principal.userId());
+                sessionPrincipals.release(principal.userId());
+                callSessions.endAll(principal.email());
+            }
+            logger.info("User disconnected: {} (remainingSessions={})", principal.email(), sessionRegistry.localSessions(principal.userId()).size());
+        }
+    }
+
+    // group chats are keyed like their chatId; one-to-one traffic by the email pair, which names the same conversation as createChatId
+    private String conversationKey(WebSocketSession session, InboundFrame frame) {
+        String senderEmail = String.valueOf(session.getAttributes().get("username"));
+        String otherEmail;
+        switch (frame) {
+            case GroupMessage groupMessage -> {
+                return "group_" + groupMessage.groupId();
+            }
+            case PrivateMessage privateMessage -> otherEmail = privateMessage.to();
+            case CallSignal callSignal -> otherEmail = callSignal.to();
+            case RtcSignal rtcSignal -> otherEmail = rtcSignal.to() != null ? rtcSignal.to() : senderEmail;
+            case PresenceUpdate presenceUpdate -> otherEmail = senderEmail;
+            case Ack ack -> {
+                return ack.chatId();
+            }
+            case Resume resume -> otherEmail = senderEmail;
+            case Typing typing -> {
+                if (typing.groupId() != null) return "group_" + typing.groupId();
+                otherEmail = typing.to();
             }
-            logger.info("User disconnected: {} (remainingSessions={})", username, sessions.getOrDefault(username, List.of()).size());
         }
+        return senderEmail.compareTo(otherEmail) < 0 ? senderEmail + "|" + otherEmail : otherEmail + "|" + senderEmail;
     }
 
-    private UserDetails extractUserDetails(WebSocketSession session) {
-        Object userAttr = session.getAttributes().get("user");
-        if (userAttr instanceof UserDetails) return (UserDetails) userAttr;
-        if (session.getPrincipal() instanceof UserDetails) return (UserDetails) session.getPrincipal();
-        return null;
+    private void sendError(WebSocketSession session, String reason) throws IOException {
+        if (session.getAttributes().get(OUTBOUND_ATTRIBUTE) instanceof OutboundSession outbound) {
+            outbound.send(OutboundFrame.encode(objectMapper, Map.of("type", "error", "reason", reason), FrameKind.EPHEMERAL));
+        }
     }
 
     private String createChatId(Long senderId, Long recipientId) {
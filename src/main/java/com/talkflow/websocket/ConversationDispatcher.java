@@ -0,0 +1,110 @@
+package com.talkflow.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs inbound frames on virtual threads, off the container's WebSocket I/O thread. Frames are striped by
+ * conversation key: one conversation is handled strictly in order, different conversations in parallel.
+ */
+@Component
+public class ConversationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationDispatcher.class);
+
+    private final ExecutorService workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-dispatch-", 0).factory());
+    private final Stripe[] stripes;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final long admissionTimeoutMs;
+    private final Counter rejected;
+
+    public ConversationDispatcher(MeterRegistry meterRegistry,
+                                  @Value("${app.websocket.dispatch.stripes:64}") int stripeCount,
+                                  @Value("${app.websocket.dispatch.max-in-flight:10000}") int maxInFlight,
+                                  @Value("${app.websocket.dispatch.admission-timeout-ms:1000}") long admissionTimeoutMs) {
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1];
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.admissionTimeoutMs = admissionTimeoutMs;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+            Gauge.builder("talkflow.ws.dispatch.stripe.depth", stripes[i].depth, AtomicInteger::get).tag("stripe", String.valueOf(i)).register(meterRegistry);
+        }
+        Gauge.builder("talkflow.ws.dispatch.in-flight", this, ConversationDispatcher::inFlight).register(meterRegistry);
+        this.rejected = Counter.builder("talkflow.ws.dispatch.rejected").register(meterRegistry);
+    }
+
+    /**
+     * Queues the task behind earlier tasks of the same conversation. Blocks the caller for up to the
+     * admission timeout when the in-flight limit is reached and returns false if no slot frees up.
+     */
+    public boolean dispatch(String conversationKey, Runnable task) throws InterruptedException {
+        if (!inFlight.tryAcquire(admissionTimeoutMs, TimeUnit.MILLISECONDS)) {
+            rejected.increment();
+            return false;
+        }
+        Stripe stripe = stripes[spread(conversationKey.hashCode()) & (stripes.length - 1)];
+        stripe.tasks.add(task);
+        stripe.depth.incrementAndGet();
+        if (stripe.running.compareAndSet(false, true)) {
+            workers.execute(() -> drain(stripe));
+        }
+        return true;
+    }
+
+    public int inFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private void drain(Stripe stripe) {
+        while (true) {
+            Runnable task;
+            while ((task = stripe.tasks.poll()) != null) {
+                stripe.depth.decrementAndGet();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Dispatched frame failed: {}", e.getMessage(), e);
+                } finally {
+                    inFlight.release();
+                }
+            }
+            stripe.running.set(false);
+            // a task added between the last poll and the reset would otherwise wait for the next dispatch
+            if (stripe.tasks.isEmpty() || !stripe.running.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class Stripe {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean running = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,166 @@
+package com.talkflow.websocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.talkflow.websocket.InboundFrame.Ack;
+import com.talkflow.websocket.InboundFrame.CallSignal;
+import com.talkflow.websocket.InboundFrame.GroupMessage;
+import com.talkflow.websocket.InboundFrame.PresenceUpdate;
+import com.talkflow.websocket.InboundFrame.PrivateMessage;
+import com.talkflow.websocket.InboundFrame.Resume;
+import com.talkflow.websocket.InboundFrame.RtcSignal;
+import com.talkflow.websocket.InboundFrame.Typing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decodes client frames in one streaming pass over the payload. Only the fields the server routes on are
+ * read; nested values such as WebRTC session descriptions are skipped and forwarded as raw bytes.
+ */
+@Component
+public class FrameDecoder {
+
+    private final JsonFactory jsonFactory;
+    private final int maxFrameBytes;
+    private final int maxContentChars;
+    private final int maxResumeCursors;
+
+    public FrameDecoder(@Value("${app.websocket.inbound.max-frame-bytes:65536}") int maxFrameBytes,
+                        @Value("${app.websocket.inbound.max-content-chars:10000}") int maxContentChars,
+                        @Value("${app.websocket.resume.max-cursors:200}") int maxResumeCursors) {
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxContentChars = maxContentChars;
+        this.maxResumeCursors = maxResumeCursors;
+        this.jsonFactory = JsonFactory.builder()
+                .streamReadConstraints(StreamReadConstraints.builder().maxNestingDepth(32).build())
+                .build();
+    }
+
+    public InboundFrame decode(TextMessage message) {
+        byte[] payload = message.asBytes();
+        if (payload.length > maxFrameBytes) {
+            throw new InvalidFrameException("Frame of " + payload.length + " bytes exceeds " + maxFrameBytes, true);
+        }
+
+        String type = null;
+        String to = null;
+        String content = null;
+        String state = null;
+        Long groupId = null;
+        String chatId = null;
+        Long delivered = null;
+        Long read = null;
+        Map<String, Long> cursors = null;
+        Long since = null;
+
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new InvalidFrameException("Frame is not a JSON object", false);
+            }
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "type" -> type = scalar(parser, value, field);
+                    case "to" -> to = scalar(parser, value, field);
+                    case "content" -> content = scalar(parser, value, field);
+                    case "state" -> state = scalar(parser, value, field);
+                    case "groupId" -> groupId = number(parser, value, field);
+                    case "chatId" -> chatId = scalar(parser, value, field);
+                    case "delivered" -> delivered = number(parser, value, field);
+                    case "read" -> read = number(parser, value, field);
+                    case "cursors" -> cursors = cursors(parser, value);
+                    case "since" -> since = number(parser, value, field);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new InvalidFrameException("Trailing data after frame", false);
+            }
+        } catch (IOException e) {
+            throw new InvalidFrameException("Malformed frame: " + e.getMessage(), false);
+        }
+
+        // the same payload goes out to recipients, so keep it as bytes rather than a String to re-encode
+        TextMessage raw = new TextMessage(payload);
+        return switch (type == null ? "private" : type) {
+            case "group" -> new GroupMessage(require(groupId, "groupId"), checkContent(content), raw);
+            case "call-request", "call-accept", "call-decline", "call-end" -> new CallSignal(type, require(to, "to"), raw);
+            case "signal" -> new RtcSignal(to, raw);
+            case "resume" -> {
+                if ((cursors == null) == (since == null)) {
+                    throw new InvalidFrameException("Resume frame needs either cursors or since", false);
+                }
+                yield new Resume(cursors != null ? cursors : Map.of(), since, raw);
+            }
+            case "ack" -> new Ack(require(chatId, "chatId"), delivered != null ? delivered : 0, read != null ? read : 0, raw);
+            case "typing" -> typing(to, groupId, state, raw);
+            case "presence" -> new PresenceUpdate(require(state, "state"), raw);
+            default -> new PrivateMessage(require(to, "to"), checkContent(content), raw);
+        };
+    }
+
+    private Map<String, Long> cursors(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            throw new InvalidFrameException("Field cursors must be an object", false);
+        }
+        Map<String, Long> cursors = new LinkedHashMap<>();
+        String chatId;
+        while ((chatId = parser.nextFieldName()) != null) {
+            if (cursors.size() == maxResumeCursors) {
+                throw new InvalidFrameException("More than " + maxResumeCursors + " resume cursors", false);
+            }
+            cursors.put(chatId, number(parser, parser.nextToken(), "cursors"));
+        }
+        return Collections.unmodifiableMap(cursors);
+    }
+
+    private static Typing typing(String to, Long groupId, String state, TextMessage raw) {
+        if ((to == null) == (groupId == null)) {
+            throw new InvalidFrameException("Typing frame needs either to or groupId", false);
+        }
+        return new Typing(to, groupId, !"stop".equals(state), raw);
+    }
+
+    private String checkContent(String content) {
+        require(content, "content");
+        if (content.length() > maxContentChars) {
+            throw new InvalidFrameException("Content of " + content.length() + " characters exceeds " + maxContentChars, true);
+        }
+        return content;
+    }
+
+    private static String scalar(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (!value.isScalarValue()) {
+            throw new InvalidFrameException("Field " + field + " must be a scalar", false);
+        }
+        return value == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    private static Long number(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) return parser.getLongValue();
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Long.parseLong(parser.getText());
+            } catch (NumberFormatException e) {
+                throw new InvalidFrameException("Field " + field + " must be a number", false);
+            }
+        }
+        throw new InvalidFrameException("Field " + field + " must be a number", false);
+    }
+
+    private static <T> T require(T value, String field) {
+        if (value == null) {
+            throw new InvalidFrameException("Missing field " + field, false);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,8 @@
+package com.talkflow.websocket;
+
+public enum FrameKind {
+    // must reach the client; overflowing a session with these closes it
+    CHAT,
+    // safe to lose; the oldest ones are dropped first when a session falls behind
+    EPHEMERAL
+}
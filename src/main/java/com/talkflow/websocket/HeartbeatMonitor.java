@@ -0,0 +1,161 @@
+package com.talkflow.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-driven heartbeat. Sessions sit in the slots of a hashed timer wheel advanced by one periodic
+ * task; when its slot comes round a session is pinged if it has been quiet for the ping interval, or
+ * closed if nothing (pong or frame) has arrived within the timeout. Half-open connections are
+ * therefore dropped from the registry instead of swallowing fan-out writes until TCP gives up. The same
+ * visit closes a session whose writer has been stuck past the outbound send time limit.
+ */
+@Component
+public class HeartbeatMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeartbeatMonitor.class);
+
+    private final Map<String, Tracked> tracked = new ConcurrentHashMap<>();
+    private final Set<Tracked>[] wheel;
+    private final ScheduledExecutorService realtimeScheduler;
+    private final long tickMs;
+    private final int intervalTicks;
+    private final long intervalNanos;
+    private final long timeoutNanos;
+    private final DistributionSummary sessionAge;
+    private final Counter reaped;
+
+    private volatile int cursor;
+    private ScheduledFuture<?> ticker;
+
+    @SuppressWarnings("unchecked")
+    public HeartbeatMonitor(ScheduledExecutorService realtimeScheduler, MeterRegistry meterRegistry,
+                            @Value("${app.websocket.heartbeat.tick-ms:1000}") long tickMs,
+                            @Value("${app.websocket.heartbeat.interval-ms:25000}") long intervalMs,
+                            @Value("${app.websocket.heartbeat.timeout-ms:60000}") long timeoutMs) {
+        this.realtimeScheduler = realtimeScheduler;
+        this.tickMs = tickMs;
+        this.intervalTicks = (int) Math.max(1, intervalMs / tickMs);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.wheel = new Set[intervalTicks + 1];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+
+        Gauge.builder("talkflow.ws.heartbeat.sessions", tracked, Map::size).register(meterRegistry);
+        this.sessionAge = DistributionSummary.builder("talkflow.ws.heartbeat.session.age").baseUnit("seconds").publishPercentiles(0.5, 0.9, 0.99).register(meterRegistry);
+        this.reaped = Counter.builder("talkflow.ws.heartbeat.reaped").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker = realtimeScheduler.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) ticker.cancel(false);
+    }
+
+    public void track(OutboundSession session) {
+        Tracked entry = new Tracked(session);
+        tracked.put(session.getId(), entry);
+        place(entry);
+    }
+
+    public void untrack(String sessionId) {
+        Tracked entry = tracked.remove(sessionId);
+        if (entry != null) {
+            wheel[entry.slot].remove(entry);
+        }
+    }
+
+    // any inbound traffic proves the connection is alive, not just pongs
+    public void seen(String sessionId) {
+        Tracked entry = tracked.get(sessionId);
+        if (entry != null) {
+            entry.lastSeen = System.nanoTime();
+        }
+    }
+
+    private void tick() {
+        int slot = (cursor + 1) % wheel.length;
+        cursor = slot;
+        if (!wheel[slot].isEmpty()) {
+            // the timer only hands off; pinging and closing happen on a virtual thread
+            Thread.ofVirtual().name("heartbeat-slot-" + slot).start(() -> check(slot));
+        }
+    }
+
+    private void check(int slot) {
+        long now = System.nanoTime();
+        // a late check can re-place entries into this same slot, so work from a snapshot
+        for (Tracked entry : wheel[slot].toArray(new Tracked[0])) {
+            wheel[slot].remove(entry);
+            // untracked entries are dropped lazily here
+            if (tracked.get(entry.session.getId()) != entry) continue;
+
+            sessionAge.record(TimeUnit.NANOSECONDS.toSeconds(now - entry.connectedAt));
+            // a writer stuck on this client is only otherwise noticed when the next frame is queued
+            if (entry.session.closeIfSendOverdue()) {
+                tracked.remove(entry.session.getId(), entry);
+                continue;
+            }
+            long quiet = now - entry.lastSeen;
+            if (quiet > timeoutNanos) {
+                reap(entry);
+                continue;
+            }
+            if (quiet >= intervalNanos - TimeUnit.MILLISECONDS.toNanos(tickMs)) {
+                entry.session.ping();
+            }
+            place(entry);
+        }
+    }
+
+    private void reap(Tracked entry) {
+        tracked.remove(entry.session.getId(), entry);
+        reaped.increment();
+        logger.info("Closing session {}: no heartbeat for over {}s", entry.session.getId(), TimeUnit.NANOSECONDS.toSeconds(timeoutNanos));
+        try {
+            entry.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            logger.error("Error closing session {}: {}", entry.session.getId(), e.getMessage());
+        }
+    }
+
+    private void place(Tracked entry) {
+        int slot = (cursor + intervalTicks) % wheel.length;
+        entry.slot = slot;
+        wheel[slot].add(entry);
+    }
+
+    private static class Tracked {
+        private final OutboundSession session;
+        private final long connectedAt = System.nanoTime();
+        private volatile long lastSeen = connectedAt;
+        private volatile int slot;
+
+        Tracked(OutboundSession session) {
+            this.session = session;
+        }
+    }
+}
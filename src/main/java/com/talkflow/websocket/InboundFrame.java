@@ -0,0 +1,40 @@
+package com.talkflow.websocket;
+
+import org.springframework.web.socket.TextMessage;
+
+import java.util.Map;
+
+/**
+ * A decoded client frame. Every variant keeps the raw message so it can be forwarded without re-encoding.
+ */
+public sealed interface InboundFrame {
+
+    TextMessage raw();
+
+    record PrivateMessage(String to, String content, TextMessage raw) implements InboundFrame {
+    }
+
+    record GroupMessage(long groupId, String content, TextMessage raw) implements InboundFrame {
+    }
+
+    record CallSignal(String type, String to, TextMessage raw) implements InboundFrame {
+    }
+
+    record RtcSignal(String to, TextMessage raw) implements InboundFrame {
+    }
+
+    // exactly one of to and groupId is set
+    record Typing(String to, Long groupId, boolean typing, TextMessage raw) implements InboundFrame {
+    }
+
+    // cumulative: everything up to and including these message ids, 0 when not reported
+    record Ack(String chatId, long delivered, long read, TextMessage raw) implements InboundFrame {
+    }
+
+    // either last-seen message id per chatId, or since as one cursor across all of the user's chats
+    record Resume(Map<String, Long> cursors, Long since, TextMessage raw) implements InboundFrame {
+    }
+
+    record PresenceUpdate(String state, TextMessage raw) implements InboundFrame {
+    }
+}
@@ -0,0 +1,186 @@
+package com.talkflow.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets for inbound frames. Every session has a frame budget that is checked before the frame
+ * is parsed, and per-category budgets that are checked right after the type is known, before any
+ * repository access. The per-category budgets exist both per session and per user, the user's being
+ * app.websocket.rate.user-multiplier times larger, so several devices share one bounded total.
+ * Sessions that keep hitting the limit within the strike window are reported for closing. A user's
+ * buckets outlive their sessions, so reconnecting does not refill them; a periodic sweep drops users
+ * without sessions once their buckets have refilled on their own.
+ */
+@Component
+public class InboundRateLimiter {
+
+    private final Map<Long, UserBuckets> userBuckets = new ConcurrentHashMap<>();
+    private final Map<RateCategory, Limit> limits = new EnumMap<>(RateCategory.class);
+    private final Limit frameLimit;
+    private final double userMultiplier;
+    private final int maxStrikes;
+    private final long strikeWindowNanos;
+    private final ScheduledExecutorService realtimeScheduler;
+    private final long sweepMs;
+
+    private final Map<RateCategory, Counter> allowed = new EnumMap<>(RateCategory.class);
+    private final Map<RateCategory, Counter> rejected = new EnumMap<>(RateCategory.class);
+    private final Counter framesRejected;
+    private final Counter closed;
+
+    private ScheduledFuture<?> sweep;
+
+    public InboundRateLimiter(MeterRegistry meterRegistry, ScheduledExecutorService realtimeScheduler,
+                              @Value("${app.websocket.rate.frames.per-second:60}") double framesPerSecond,
+                              @Value("${app.websocket.rate.frames.burst:120}") int framesBurst,
+                              @Value("${app.websocket.rate.chat.per-second:5}") double chatPerSecond,
+                              @Value("${app.websocket.rate.chat.burst:20}") int chatBurst,
+                              @Value("${app.websocket.rate.signal.per-second:30}") double signalPerSecond,
+                              @Value("${app.websocket.rate.signal.burst:100}") int signalBurst,
+                              @Value("${app.websocket.rate.ephemeral.per-second:10}") double ephemeralPerSecond,
+                              @Value("${app.websocket.rate.ephemeral.burst:20}") int ephemeralBurst,
+                              @Value("${app.websocket.rate.user-multiplier:2}") double userMultiplier,
+                              @Value("${app.websocket.rate.max-strikes:50}") int maxStrikes,
+                              @Value("${app.websocket.rate.strike-window-ms:10000}") long strikeWindowMs,
+                              @Value("${app.websocket.rate.user-sweep-ms:60000}") long sweepMs) {
+        this.frameLimit = new Limit(framesPerSecond, framesBurst);
+        limits.put(RateCategory.CHAT, new Limit(chatPerSecond, chatBurst));
+        limits.put(RateCategory.SIGNAL, new Limit(signalPerSecond, signalBurst));
+        limits.put(RateCategory.EPHEMERAL, new Limit(ephemeralPerSecond, ephemeralBurst));
+        this.userMultiplier = userMultiplier;
+        this.maxStrikes = maxStrikes;
+        this.strikeWindowNanos = TimeUnit.MILLISECONDS.toNanos(strikeWindowMs);
+        this.realtimeScheduler = realtimeScheduler;
+        this.sweepMs = sweepMs;
+
+        for (RateCategory category : RateCategory.values()) {
+            String tag = category.name().toLowerCase();
+            allowed.put(category, Counter.builder("talkflow.ws.rate.decisions").tag("category", tag).tag("result", "allowed").register(meterRegistry));
+            rejected.put(category, Counter.builder("talkflow.ws.rate.decisions").tag("category", tag).tag("result", "rejected").register(meterRegistry));
+        }
+        this.framesRejected = Counter.builder("talkflow.ws.rate.decisions").tag("category", "frames").tag("result", "rejected").register(meterRegistry);
+        this.closed = Counter.builder("talkflow.ws.rate.closed").register(meterRegistry);
+        Gauge.builder("talkflow.ws.rate.users", userBuckets, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        sweep = realtimeScheduler.scheduleAtFixedRate(() -> Thread.ofVirtual().name("rate-limit-sweep").start(this::sweepIdleUsers),
+                sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweep != null) sweep.cancel(false);
+    }
+
+    public SessionLimits open(long userId) {
+        UserBuckets user = userBuckets.compute(userId, (id, existing) -> {
+            UserBuckets buckets = existing != null ? existing : new UserBuckets(buckets(userMultiplier));
+            buckets.sessions++;
+            return buckets;
+        });
+        return new SessionLimits(userId, new TokenBucket(frameLimit.perSecond(), frameLimit.burst()), buckets(1), user.buckets);
+    }
+
+    // the user's buckets stay until the sweep finds them idle
+    public void close(SessionLimits session) {
+        userBuckets.computeIfPresent(session.userId, (id, user) -> {
+            user.sessions--;
+            return user;
+        });
+    }
+
+    public boolean allowFrame(SessionLimits session) {
+        if (session.frames.tryAcquire()) return true;
+        framesRejected.increment();
+        return false;
+    }
+
+    public boolean allow(SessionLimits session, RateCategory category) {
+        boolean granted = session.buckets.get(category).tryAcquire() && session.user.get(category).tryAcquire();
+        (granted ? allowed : rejected).get(category).increment();
+        return granted;
+    }
+
+    public long retryAfterMillis(SessionLimits session, RateCategory category) {
+        if (category == null) return session.frames.retryAfterMillis();
+        return Math.max(session.buckets.get(category).retryAfterMillis(), session.user.get(category).retryAfterMillis());
+    }
+
+    /**
+     * Counts a rejected frame against the session and returns true once it should be closed.
+     */
+    public boolean strike(SessionLimits session) {
+        long now = System.nanoTime();
+        long windowStart = session.windowStart.get();
+        if (now - windowStart > strikeWindowNanos && session.windowStart.compareAndSet(windowStart, now)) {
+            session.strikes.set(0);
+        }
+        if (session.strikes.incrementAndGet() == maxStrikes) {
+            closed.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private void sweepIdleUsers() {
+        for (Long userId : userBuckets.keySet()) {
+            userBuckets.computeIfPresent(userId, (id, user) -> user.sessions <= 0 && user.isFull() ? null : user);
+        }
+    }
+
+    private Map<RateCategory, TokenBucket> buckets(double multiplier) {
+        Map<RateCategory, TokenBucket> buckets = new EnumMap<>(RateCategory.class);
+        limits.forEach((category, limit) -> buckets.put(category, new TokenBucket(limit.perSecond() * multiplier, (int) Math.ceil(limit.burst() * multiplier))));
+        return buckets;
+    }
+
+    private record Limit(double perSecond, int burst) {
+    }
+
+    // sessions is only touched inside the map's compute functions
+    private static class UserBuckets {
+        private final Map<RateCategory, TokenBucket> buckets;
+        private int sessions;
+
+        UserBuckets(Map<RateCategory, TokenBucket> buckets) {
+            this.buckets = buckets;
+        }
+
+        boolean isFull() {
+            return buckets.values().stream().allMatch(TokenBucket::isFull);
+        }
+    }
+
+    public static class SessionLimits {
+        private final long userId;
+        private final TokenBucket frames;
+        private final Map<RateCategory, TokenBucket> buckets;
+        private final Map<RateCategory, TokenBucket> user;
+        private final AtomicInteger strikes = new AtomicInteger();
+        private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+        SessionLimits(long userId, TokenBucket frames, Map<RateCategory, TokenBucket> buckets, Map<RateCategory, TokenBucket> user) {
+            this.userId = userId;
+            this.frames = frames;
+            this.buckets = buckets;
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.talkflow.websocket;
+
+public class InvalidFrameException extends RuntimeException {
+
+    private final boolean tooLarge;
+
+    public InvalidFrameException(String message, boolean tooLarge) {
+        super(message);
+        this.tooLarge = tooLarge;
+    }
+
+    public boolean isTooLarge() {
+        return tooLarge;
+    }
+}
@@ -0,0 +1,60 @@
+package com.talkflow.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A payload encoded once and shared as-is by every recipient session of a fan-out.
+ */
+public record OutboundFrame(TextMessage message, FrameKind kind) {
+
+    public static OutboundFrame encode(ObjectMapper objectMapper, Object payload, FrameKind kind) throws JsonProcessingException {
+        // the byte[] constructor keeps the bytes, so payload length checks do not re-encode
+        return new OutboundFrame(new TextMessage(objectMapper.writeValueAsBytes(payload)), kind);
+    }
+
+    /**
+     * Adds server-assigned fields to a client's JSON object without re-encoding it. They go last, so they
+     * win over same-named fields the client may have sent.
+     */
+    public static OutboundFrame withFields(ObjectMapper objectMapper, TextMessage raw, Map<String, ?> fields, FrameKind kind) throws JsonProcessingException {
+        byte[] original = raw.asBytes();
+        byte[] extra = objectMapper.writeValueAsBytes(fields);
+        int end = original.length - 1;
+        while (original[end] != '}') end--;
+
+        byte[] merged = new byte[end + 1 + extra.length - 1];
+        System.arraycopy(original, 0, merged, 0, end);
+        merged[end] = ',';
+        System.arraycopy(extra, 1, merged, end + 1, extra.length - 1);
+        return new OutboundFrame(new TextMessage(merged), kind);
+    }
+
+    /**
+     * Joins already-encoded frames into one JSON array frame for sessions that negotiated batching.
+     */
+    public static TextMessage batch(List<OutboundFrame> frames) {
+        int length = frames.size() + 1;
+        for (OutboundFrame frame : frames) length += frame.size();
+
+        byte[] joined = new byte[length];
+        joined[0] = '[';
+        int position = 1;
+        for (OutboundFrame frame : frames) {
+            byte[] bytes = frame.message().asBytes();
+            System.arraycopy(bytes, 0, joined, position, bytes.length);
+            position += bytes.length;
+            joined[position++] = ',';
+        }
+        joined[length - 1] = ']';
+        return new TextMessage(joined);
+    }
+
+    public int size() {
+        return message.getPayloadLength();
+    }
+}
@@ -0,0 +1,298 @@
+package com.talkflow.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Session decorator that never writes on the caller's thread. Frames are queued per session
+ * and a single writer drains them, so a stalled client only ever blocks itself.
+ * <p>
+ * Sessions that asked for batching at handshake have the writer start a short window after the first
+ * frame, and every write takes as many queued frames as fit the byte budget as one JSON array frame.
+ * A frame that ends up alone is still sent as a plain object.
+ */
+public class OutboundSession extends WebSocketSessionDecorator {
+
+    public static final String COALESCE_ATTRIBUTE = "coalesce";
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundSession.class);
+
+    private final Deque<OutboundFrame> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Executor writer;
+    private final OutboundSessionFactory.Metrics metrics;
+    private final long sendTimeLimitMs;
+    private final int bufferSizeLimit;
+    private final ScheduledExecutorService scheduler;
+    private final long coalesceWindowMs;
+    private final int coalesceMaxBytes;
+
+    private int bufferedBytes;
+    private boolean draining;
+    private boolean pingPending;
+    private boolean closed;
+    private volatile long sendStartedAt;
+
+    OutboundSession(WebSocketSession delegate, Executor writer, OutboundSessionFactory.Metrics metrics, long sendTimeLimitMs, int bufferSizeLimit,
+                    ScheduledExecutorService scheduler, long coalesceWindowMs, int coalesceMaxBytes) {
+        super(delegate);
+        this.writer = writer;
+        this.metrics = metrics;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.scheduler = scheduler;
+        this.coalesceWindowMs = coalesceWindowMs;
+        this.coalesceMaxBytes = coalesceMaxBytes;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage textMessage) {
+            send(new OutboundFrame(textMessage, FrameKind.CHAT));
+        } else {
+            throw new IllegalArgumentException("Only text frames can be queued: " + message.getClass().getSimpleName());
+        }
+    }
+
+    public void send(OutboundFrame frame) {
+        int size = frame.size();
+        boolean startWriter;
+
+        lock.lock();
+        try {
+            if (closed) return;
+
+            if (sendOverdue()) {
+                closeOverdue();
+                return;
+            }
+
+            while (bufferedBytes + size > bufferSizeLimit && !queue.isEmpty()) {
+                if (!dropOldestEphemeral()) break;
+            }
+
+            if (bufferedBytes + size > bufferSizeLimit && !queue.isEmpty()) {
+                if (frame.kind() == FrameKind.EPHEMERAL) {
+                    metrics.dropped(1);
+                    return;
+                }
+                metrics.overflowClosed();
+                closeUnreliable("outbound buffer of " + bufferSizeLimit + " bytes exceeded");
+                return;
+            }
+
+            queue.addLast(frame);
+            bufferedBytes += size;
+            metrics.added(size, queue.size());
+
+            startWriter = !draining;
+            draining = true;
+        } finally {
+            lock.unlock();
+        }
+
+        if (startWriter) {
+            if (coalesceMaxBytes > 0 && coalesceWindowMs > 0) {
+                scheduler.schedule(() -> writer.execute(this::drain), coalesceWindowMs, TimeUnit.MILLISECONDS);
+            } else {
+                writer.execute(this::drain);
+            }
+        }
+    }
+
+    // goes ahead of queued frames; the writer is the only thread allowed to write to the socket
+    public void ping() {
+        boolean startWriter;
+        lock.lock();
+        try {
+            if (closed) return;
+            pingPending = true;
+            startWriter = !draining;
+            draining = true;
+        } finally {
+            lock.unlock();
+        }
+
+        if (startWriter) {
+            writer.execute(this::drain);
+        }
+    }
+
+    /**
+     * Closes the session when its writer has been stuck on one write for longer than the send time limit.
+     * Called periodically, so a stalled client is noticed even when no further frame is queued for it.
+     */
+    public boolean closeIfSendOverdue() {
+        lock.lock();
+        try {
+            if (closed || !sendOverdue()) return false;
+            closeOverdue();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getBufferedBytes() {
+        lock.lock();
+        try {
+            return bufferedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        discardQueue();
+        super.close(status);
+    }
+
+    private void drain() {
+        while (true) {
+            WebSocketMessage<?> message;
+            List<OutboundFrame> batch = null;
+            lock.lock();
+            try {
+                if (!closed && pingPending) {
+                    pingPending = false;
+                    message = new PingMessage();
+                } else {
+                    OutboundFrame frame = closed ? null : queue.pollFirst();
+                    if (frame == null) {
+                        draining = false;
+                        return;
+                    }
+                    bufferedBytes -= frame.size();
+                    metrics.removed(1, frame.size());
+                    message = frame.message();
+                    if (coalesceMaxBytes > 0 && !queue.isEmpty()) {
+                        batch = takeBatch(frame);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (batch != null) {
+                message = OutboundFrame.batch(batch);
+            }
+
+            if (!getDelegate().isOpen()) {
+                discardQueue();
+                continue;
+            }
+
+            sendStartedAt = System.currentTimeMillis();
+            try {
+                getDelegate().sendMessage(message);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Error sending message to session {}: {}", getId(), e.getMessage());
+                discardQueue();
+            } finally {
+                sendStartedAt = 0;
+            }
+        }
+    }
+
+    // caller holds the lock; null when nothing else fits next to the first frame
+    private List<OutboundFrame> takeBatch(OutboundFrame first) {
+        int bytes = first.size() + 2;
+        OutboundFrame next = queue.peekFirst();
+        if (next == null || bytes + next.size() + 1 > coalesceMaxBytes) return null;
+
+        List<OutboundFrame> batch = new ArrayList<>();
+        batch.add(first);
+        while (next != null && bytes + next.size() + 1 <= coalesceMaxBytes) {
+            queue.pollFirst();
+            batch.add(next);
+            bytes += next.size() + 1;
+            bufferedBytes -= next.size();
+            metrics.removed(1, next.size());
+            next = queue.peekFirst();
+        }
+        metrics.coalesced(batch.size());
+        return batch;
+    }
+
+    // caller holds the lock
+    private boolean dropOldestEphemeral() {
+        Iterator<OutboundFrame> it = queue.iterator();
+        while (it.hasNext()) {
+            OutboundFrame frame = it.next();
+            if (frame.kind() == FrameKind.EPHEMERAL) {
+                it.remove();
+                bufferedBytes -= frame.size();
+                metrics.removed(1, frame.size());
+                metrics.dropped(1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean sendOverdue() {
+        long started = sendStartedAt;
+        return started > 0 && System.currentTimeMillis() - started > sendTimeLimitMs;
+    }
+
+    // caller holds the lock
+    private void closeOverdue() {
+        metrics.slowConsumerClosed();
+        closeUnreliable("send time limit of " + sendTimeLimitMs + "ms exceeded");
+    }
+
+    // caller holds the lock
+    private void closeUnreliable(String reason) {
+        logger.warn("Closing slow session {}: {}", getId(), reason);
+        closed = true;
+        metrics.removed(queue.size(), bufferedBytes);
+        queue.clear();
+        bufferedBytes = 0;
+        writer.execute(() -> {
+            try {
+                getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                logger.error("Error closing session {}: {}", getId(), e.getMessage());
+            }
+        });
+    }
+
+    private void discardQueue() {
+        lock.lock();
+        try {
+            closed = true;
+            metrics.removed(queue.size(), bufferedBytes);
+            queue.clear();
+            bufferedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.talkflow.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class OutboundSessionFactory {
+
+    private final ExecutorService writers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-writer-", 0).factory());
+    private final Metrics metrics;
+    private final long sendTimeLimitMs;
+    private final int bufferSizeLimit;
+    private final ScheduledExecutorService realtimeScheduler;
+    private final boolean coalesceEnabled;
+    private final long coalesceWindowMs;
+    private final int coalesceMaxBytes;
+
+    public OutboundSessionFactory(MeterRegistry meterRegistry, ScheduledExecutorService realtimeScheduler,
+                                  @Value("${app.websocket.outbound.send-time-limit-ms:10000}") long sendTimeLimitMs,
+                                  @Value("${app.websocket.outbound.buffer-size-limit:524288}") int bufferSizeLimit,
+                                  @Value("${app.websocket.outbound.coalesce.enabled:true}") boolean coalesceEnabled,
+                                  @Value("${app.websocket.outbound.coalesce.window-ms:5}") long coalesceWindowMs,
+                                  @Value("${app.websocket.outbound.coalesce.max-bytes:32768}") int coalesceMaxBytes) {
+        this.metrics = new Metrics(meterRegistry);
+        this.realtimeScheduler = realtimeScheduler;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.coalesceEnabled = coalesceEnabled;
+        this.coalesceWindowMs = coalesceWindowMs;
+        this.coalesceMaxBytes = coalesceMaxBytes;
+    }
+
+    public OutboundSession decorate(WebSocketSession session) {
+        boolean coalesce = coalesceEnabled && Boolean.TRUE.equals(session.getAttributes().get(OutboundSession.COALESCE_ATTRIBUTE));
+        return new OutboundSession(session, writers, metrics, sendTimeLimitMs, bufferSizeLimit,
+                realtimeScheduler, coalesceWindowMs, coalesce ? coalesceMaxBytes : 0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+    }
+
+    static class Metrics {
+        private final AtomicLong queuedFrames = new AtomicLong();
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private final DistributionSummary queueDepth;
+        private final DistributionSummary coalescedFrames;
+        private final Counter droppedFrames;
+        private final Counter overflowClosed;
+        private final Counter slowConsumerClosed;
+
+        Metrics(MeterRegistry registry) {
+            Gauge.builder("talkflow.ws.outbound.queued.frames", queuedFrames, AtomicLong::get).register(registry);
+            Gauge.builder("talkflow.ws.outbound.queued.bytes", queuedBytes, AtomicLong::get).baseUnit("bytes").register(registry);
+            queueDepth = DistributionSummary.builder("talkflow.ws.outbound.queue.depth").publishPercentiles(0.5, 0.99).register(registry);
+            coalescedFrames = DistributionSummary.builder("talkflow.ws.outbound.coalesced.frames").publishPercentiles(0.5, 0.99).register(registry);
+            droppedFrames = Counter.builder("talkflow.ws.outbound.dropped").register(registry);
+            overflowClosed = Counter.builder("talkflow.ws.outbound.closed").tag("reason", "overflow").register(registry);
+            slowConsumerClosed = Counter.builder("talkflow.ws.outbound.closed").tag("reason", "send-time-limit").register(registry);
+        }
+
+        void added(int bytes, int depth) {
+            queuedFrames.incrementAndGet();
+            queuedBytes.addAndGet(bytes);
+            queueDepth.record(depth);
+        }
+
+        void removed(int frames, int bytes) {
+            queuedFrames.addAndGet(-frames);
+            queuedBytes.addAndGet(-bytes);
+        }
+
+        void coalesced(int frames) {
+            coalescedFrames.record(frames);
+        }
+
+        void dropped(int frames) {
+            droppedFrames.increment(frames);
+        }
+
+        void overflowClosed() {
+            overflowClosed.increment();
+        }
+
+        void slowConsumerClosed() {
+            slowConsumerClosed.increment();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.talkflow.websocket;
+
+public enum PresenceState {
+    ONLINE,
+    AWAY,
+    OFFLINE
+}
@@ -0,0 +1,238 @@
+package com.talkflow.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talkflow.cache.BoundedTtlCache;
+import com.talkflow.cache.ConnectionPermissionCache;
+import com.talkflow.repository.auth.UserRepository;
+import com.talkflow.websocket.cluster.MessageBus;
+import com.talkflow.websocket.cluster.SessionRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Online/away/offline state and last-seen time per user. A change is published to the user's accepted
+ * connections only after it has held for the debounce window, so a reconnecting client never shows up
+ * as offline. Last-seen times are collected in memory and written in one batch per flush interval.
+ * Snapshots read peers and stored last-seen times from caches, so a reconnect storm stays off the database.
+ */
+@Component
+public class PresenceTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceTracker.class);
+
+    private final Map<Long, Presence> presence = new ConcurrentHashMap<>();
+    private final Map<Long, LocalDateTime> unsavedLastSeen = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong changes = new AtomicLong();
+
+    private final ConnectionPermissionCache connectionPermissions;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final SessionRegistry sessionRegistry;
+    private final MessageBus messageBus;
+    private final ScheduledExecutorService realtimeScheduler;
+    private final long debounceMs;
+    private final long lastSeenFlushMs;
+    private final Counter published;
+    private final Counter suppressed;
+    // empty for users who were never seen; entries age out after one flush interval, when other nodes' times reach the database
+    private final BoundedTtlCache<Long, Optional<LocalDateTime>> storedLastSeen;
+
+    private ScheduledFuture<?> lastSeenFlush;
+
+    public PresenceTracker(ConnectionPermissionCache connectionPermissions, UserRepository userRepository, JdbcTemplate jdbcTemplate,
+                           SessionRegistry sessionRegistry, MessageBus messageBus, ScheduledExecutorService realtimeScheduler, MeterRegistry meterRegistry,
+                           @Value("${app.presence.debounce-ms:3000}") long debounceMs,
+                           @Value("${app.presence.last-seen-flush-ms:60000}") long lastSeenFlushMs,
+                           @Value("${app.presence.last-seen-cache.max-entries:100000}") int lastSeenMaxEntries) {
+        this.connectionPermissions = connectionPermissions;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sessionRegistry = sessionRegistry;
+        this.messageBus = messageBus;
+        this.realtimeScheduler = realtimeScheduler;
+        this.debounceMs = debounceMs;
+        this.lastSeenFlushMs = lastSeenFlushMs;
+        Gauge.builder("talkflow.presence.tracked", presence, Map::size).register(meterRegistry);
+        this.published = Counter.builder("talkflow.presence.changes").tag("result", "published").register(meterRegistry);
+        this.suppressed = Counter.builder("talkflow.presence.changes").tag("result", "suppressed").register(meterRegistry);
+        Duration lastSeenTtl = Duration.ofMillis(lastSeenFlushMs);
+        this.storedLastSeen = new BoundedTtlCache<>("last-seen", lastSeenMaxEntries, lastSeen -> lastSeenTtl, meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        lastSeenFlush = realtimeScheduler.scheduleAtFixedRate(() -> Thread.ofVirtual().name("last-seen-flush").start(this::flushLastSeen),
+                lastSeenFlushMs, lastSeenFlushMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (lastSeenFlush != null) lastSeenFlush.cancel(false);
+        flushLastSeen();
+    }
+
+    public void connected(long userId) {
+        change(userId, PresenceState.ONLINE);
+    }
+
+    public void disconnected(long userId) {
+        change(userId, PresenceState.OFFLINE);
+    }
+
+    public void away(long userId, boolean away) {
+        if (presence.containsKey(userId)) {
+            change(userId, away ? PresenceState.AWAY : PresenceState.ONLINE);
+        }
+    }
+
+    /**
+     * Sends a newly connected session the current state of all of its user's connections.
+     */
+    public void sendSnapshot(long userId, OutboundSession session) {
+        List<Long> peerIds = connectionPermissions.acceptedPeers(userId);
+        loadStoredLastSeen(peerIds.stream()
+                .filter(peerId -> !presence.containsKey(peerId) && !unsavedLastSeen.containsKey(peerId) && storedLastSeen.getIfPresent(peerId) == null)
+                .toList());
+
+        List<Map<String, Object>> users = new ArrayList<>(peerIds.size());
+        for (Long peerId : peerIds) {
+            Presence known = presence.get(peerId);
+            PresenceState state = known != null ? known.published : sessionRegistry.isOnline(peerId) ? PresenceState.ONLINE : PresenceState.OFFLINE;
+            LocalDateTime lastSeenAt = known != null ? known.lastSeenAt : unsavedLastSeen.getOrDefault(peerId, storedLastSeen(peerId));
+            users.add(entry(peerId, state, lastSeenAt));
+        }
+        try {
+            session.send(OutboundFrame.encode(objectMapper, Map.of("type", "presence-snapshot", "users", users), FrameKind.EPHEMERAL));
+        } catch (IOException e) {
+            logger.error("Error encoding presence snapshot for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    // one query for all misses; putIfAbsent keeps a time written by a flush that overlapped the read
+    private void loadStoredLastSeen(List<Long> missing) {
+        if (missing.isEmpty()) return;
+        Map<Long, LocalDateTime> loaded = new HashMap<>();
+        for (Object[] row : userRepository.findLastSeenByUserIds(missing)) {
+            loaded.put((Long) row[0], (LocalDateTime) row[1]);
+        }
+        for (Long peerId : missing) {
+            storedLastSeen.putIfAbsent(peerId, Optional.ofNullable(loaded.get(peerId)));
+        }
+    }
+
+    private LocalDateTime storedLastSeen(long userId) {
+        Optional<LocalDateTime> lastSeen = storedLastSeen.getIfPresent(userId);
+        return lastSeen != null ? lastSeen.orElse(null) : null;
+    }
+
+    private void change(long userId, PresenceState state) {
+        LocalDateTime now = LocalDateTime.now();
+        unsavedLastSeen.put(userId, now);
+        presence.compute(userId, (id, entry) -> {
+            if (entry == null) entry = new Presence();
+            entry.state = state;
+            entry.lastSeenAt = now;
+            if (entry.pending != null) entry.pending.cancel(false);
+            long sequence = changes.incrementAndGet();
+            entry.sequence = sequence;
+            entry.pending = realtimeScheduler.schedule(() -> Thread.ofVirtual().start(() -> publish(id, sequence)), debounceMs, TimeUnit.MILLISECONDS);
+            return entry;
+        });
+    }
+
+    // only the latest change of a user publishes; a cancelled timer that already fired is ignored by its sequence
+    private void publish(long userId, long sequence) {
+        Presence current = presence.get(userId);
+        // in a cluster the user may still be connected to another node, which then owns their presence
+        boolean elsewhere = current != null && current.state == PresenceState.OFFLINE && sessionRegistry.isOnline(userId);
+
+        PresenceState[] changed = new PresenceState[1];
+        LocalDateTime[] lastSeenAt = new LocalDateTime[1];
+        presence.computeIfPresent(userId, (id, entry) -> {
+            if (entry != current || entry.sequence != sequence) return entry;
+            entry.pending = null;
+            if (entry.state != entry.published && !elsewhere) {
+                changed[0] = entry.state;
+                lastSeenAt[0] = entry.lastSeenAt;
+                entry.published = entry.state;
+            }
+            return entry.state == PresenceState.OFFLINE ? null : entry;
+        });
+
+        if (changed[0] == null) {
+            suppressed.increment();
+            return;
+        }
+        published.increment();
+        try {
+            Map<String, Object> payload = entry(userId, changed[0], lastSeenAt[0]);
+            payload.put("type", "presence");
+            long[] peerIds = connectionPermissions.acceptedPeers(userId).stream().mapToLong(Long::longValue).toArray();
+            messageBus.sendToUsers(peerIds, OutboundFrame.encode(objectMapper, payload, FrameKind.EPHEMERAL));
+        } catch (Exception e) {
+            logger.error("Error publishing presence of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void flushLastSeen() {
+        List<Object[]> batch = new ArrayList<>();
+        unsavedLastSeen.forEach((userId, lastSeenAt) -> {
+            if (unsavedLastSeen.remove(userId, lastSeenAt)) {
+                batch.add(new Object[]{Timestamp.valueOf(lastSeenAt), userId});
+            }
+        });
+        if (batch.isEmpty()) return;
+        try {
+            jdbcTemplate.batchUpdate("UPDATE users SET last_seen_at = ? WHERE user_id = ?", batch);
+            for (Object[] row : batch) {
+                storedLastSeen.put((Long) row[1], Optional.of(((Timestamp) row[0]).toLocalDateTime()));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Saving last-seen time of {} users failed, retrying next flush: {}", batch.size(), e.getMessage());
+            for (Object[] row : batch) {
+                unsavedLastSeen.putIfAbsent((Long) row[1], ((Timestamp) row[0]).toLocalDateTime());
+            }
+        }
+    }
+
+    private static Map<String, Object> entry(long userId, PresenceState state, LocalDateTime lastSeenAt) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("userId", userId);
+        entry.put("state", state.name().toLowerCase());
+        entry.put("lastSeenAt", lastSeenAt != null ? lastSeenAt.toString() : null);
+        return entry;
+    }
+
+    private static class Presence {
+        private PresenceState state = PresenceState.OFFLINE;
+        private PresenceState published = PresenceState.OFFLINE;
+        private LocalDateTime lastSeenAt;
+        private ScheduledFuture<?> pending;
+        private long sequence;
+    }
+}
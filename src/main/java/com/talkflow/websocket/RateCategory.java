@@ -0,0 +1,20 @@
+package com.talkflow.websocket;
+
+public enum RateCategory {
+    CHAT,
+    SIGNAL,
+    EPHEMERAL;
+
+    static RateCategory of(InboundFrame frame) {
+        return switch (frame) {
+            case InboundFrame.PrivateMessage privateMessage -> CHAT;
+            case InboundFrame.GroupMessage groupMessage -> CHAT;
+            case InboundFrame.Resume resume -> CHAT;
+            case InboundFrame.CallSignal callSignal -> SIGNAL;
+            case InboundFrame.RtcSignal rtcSignal -> SIGNAL;
+            case InboundFrame.Typing typing -> EPHEMERAL;
+            case InboundFrame.PresenceUpdate presenceUpdate -> EPHEMERAL;
+            case InboundFrame.Ack ack -> EPHEMERAL;
+        };
+    }
+}
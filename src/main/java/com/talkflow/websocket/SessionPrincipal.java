@@ -0,0 +1,6 @@
+package com.talkflow.websocket;
+
+public record SessionPrincipal(Long userId, String email, boolean active) {
+
+    public static final String ATTRIBUTE = "principal";
+}
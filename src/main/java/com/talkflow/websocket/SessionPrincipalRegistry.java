@@ -0,0 +1,68 @@
+package com.talkflow.websocket;
+
+import com.talkflow.repository.auth.UserRepository;
+import com.talkflow.websocket.cluster.InvalidationBus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Current principal of every connected user. Handlers read it instead of loading the sender per frame;
+ * account changes invalidate the entry on every node and the next frame reloads it once.
+ */
+@Component
+public class SessionPrincipalRegistry {
+
+    private static final String TOPIC = "session-principals";
+
+    private final Map<Long, SessionPrincipal> principals = new ConcurrentHashMap<>();
+    private final AtomicLong modifications = new AtomicLong();
+    private final UserRepository userRepository;
+    private final InvalidationBus invalidationBus;
+
+    public SessionPrincipalRegistry(UserRepository userRepository, InvalidationBus invalidationBus) {
+        this.userRepository = userRepository;
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(TOPIC, userId -> {
+            modifications.incrementAndGet();
+            principals.remove(Long.valueOf(userId));
+        });
+    }
+
+    public void register(SessionPrincipal principal) {
+        principals.put(principal.userId(), principal);
+    }
+
+    public void release(Long userId) {
+        principals.remove(userId);
+    }
+
+    public void invalidate(Long userId) {
+        modifications.incrementAndGet();
+        principals.remove(userId);
+        invalidationBus.publish(TOPIC, String.valueOf(userId));
+    }
+
+    public SessionPrincipal resolve(WebSocketSession session) {
+        if (!(session.getAttributes().get(SessionPrincipal.ATTRIBUTE) instanceof SessionPrincipal handshake)) {
+            return null;
+        }
+        SessionPrincipal cached = principals.get(handshake.userId());
+        if (cached != null) return cached;
+
+        // loaded outside the map so the query holds no bin lock; a load that overlaps an invalidation is used but not kept
+        long seen = modifications.get();
+        SessionPrincipal loaded = userRepository.findByEmail(handshake.email())
+                .map(user -> new SessionPrincipal(user.getUserId(), user.getEmail(), Boolean.TRUE.equals(user.getIsActive())))
+                .orElseGet(() -> new SessionPrincipal(handshake.userId(), handshake.email(), false));
+        if (modifications.get() != seen) return loaded;
+        SessionPrincipal raced = principals.putIfAbsent(handshake.userId(), loaded);
+        if (raced != null) return raced;
+        // an invalidation that slipped in between the check and the put may have removed nothing
+        if (modifications.get() != seen) principals.remove(handshake.userId(), loaded);
+        return loaded;
+    }
+}
@@ -0,0 +1,40 @@
+package com.talkflow.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one timestamp, the time at which the
+ * bucket would be full again, advanced with compare-and-set.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.toleranceNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            if (next - now > toleranceNanos) return false;
+            if (fullAt.compareAndSet(current, next)) return true;
+        }
+    }
+
+    // a full bucket behaves exactly like a new one, so it can be dropped without granting anything extra
+    boolean isFull() {
+        return fullAt.get() - System.nanoTime() <= 0;
+    }
+
+    long retryAfterMillis() {
+        long wait = fullAt.get() + intervalNanos - toleranceNanos - System.nanoTime();
+        return Math.max(0, wait / 1_000_000);
+    }
+}
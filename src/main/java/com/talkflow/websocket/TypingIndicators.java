@@ -0,0 +1,159 @@
+package com.talkflow.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Typing state per sender and conversation. Every start or stop that is passed on opens a cooldown
+ * window; changes inside it are coalesced into at most one trailing event when it closes. A start that
+ * is not refreshed within the expiry is turned into a stop by the server.
+ */
+@Component
+public class TypingIndicators {
+
+    private static final Logger logger = LoggerFactory.getLogger(TypingIndicators.class);
+
+    private final Map<Key, Indicator> indicators = new ConcurrentHashMap<>();
+    private final AtomicLong timers = new AtomicLong();
+    private final ScheduledExecutorService realtimeScheduler;
+    private final long intervalMs;
+    private final long expiryMs;
+    private final Counter emitted;
+    private final Counter coalesced;
+
+    public TypingIndicators(ScheduledExecutorService realtimeScheduler, MeterRegistry meterRegistry,
+                            @Value("${app.websocket.typing.interval-ms:1000}") long intervalMs,
+                            @Value("${app.websocket.typing.expiry-ms:6000}") long expiryMs) {
+        this.realtimeScheduler = realtimeScheduler;
+        this.intervalMs = intervalMs;
+        this.expiryMs = expiryMs;
+        Gauge.builder("talkflow.typing.active", indicators, Map::size).register(meterRegistry);
+        this.emitted = Counter.builder("talkflow.typing.events").tag("result", "emitted").register(meterRegistry);
+        this.coalesced = Counter.builder("talkflow.typing.events").tag("result", "coalesced").register(meterRegistry);
+    }
+
+    /**
+     * Records the sender's typing state. The emitter fans the state out to the conversation; the latest
+     * one given is also used for trailing and expiry events.
+     */
+    public void update(long senderId, String conversationKey, boolean typing, Consumer<Boolean> emitter) {
+        Key key = new Key(senderId, conversationKey);
+        Emission emission;
+        while (true) {
+            Indicator indicator = indicators.computeIfAbsent(key, k -> new Indicator());
+            synchronized (indicator) {
+                if (indicator.removed) continue;
+                indicator.emitter = emitter;
+                if (indicator.expiry != null) indicator.expiry.cancel(false);
+                if (typing) {
+                    long sequence = timers.incrementAndGet();
+                    indicator.expirySequence = sequence;
+                    indicator.expiry = schedule(() -> expire(key, indicator, sequence), expiryMs);
+                } else {
+                    indicator.expiry = null;
+                }
+                emission = request(key, indicator, typing);
+                removeIfIdle(key, indicator);
+            }
+            break;
+        }
+        send(emission);
+    }
+
+    // caller holds the indicator's lock; what to emit once it is released, or null
+    private Emission request(Key key, Indicator indicator, boolean typing) {
+        if (indicator.cooldown != null) {
+            indicator.pending = typing;
+            coalesced.increment();
+            return null;
+        }
+        return typing != indicator.typing ? emit(key, indicator, typing) : null;
+    }
+
+    // caller holds the indicator's lock. Every emission opens a cooldown, so emissions of one indicator
+    // are at least an interval apart and cannot overtake each other once sent outside the lock.
+    private Emission emit(Key key, Indicator indicator, boolean typing) {
+        indicator.typing = typing;
+        indicator.pending = null;
+        indicator.cooldown = schedule(() -> cooldownEnded(key, indicator), intervalMs);
+        return new Emission(indicator.emitter, typing);
+    }
+
+    // never called under a lock: the emitter may publish to the cluster broker
+    private void send(Emission emission) {
+        if (emission == null) return;
+        emitted.increment();
+        try {
+            emission.emitter().accept(emission.typing());
+        } catch (RuntimeException e) {
+            logger.error("Error sending typing indicator: {}", e.getMessage());
+        }
+    }
+
+    private void cooldownEnded(Key key, Indicator indicator) {
+        Emission emission = null;
+        synchronized (indicator) {
+            indicator.cooldown = null;
+            Boolean pending = indicator.pending;
+            indicator.pending = null;
+            if (pending != null && pending != indicator.typing) {
+                emission = emit(key, indicator, pending);
+            }
+            removeIfIdle(key, indicator);
+        }
+        send(emission);
+    }
+
+    // a timer that fired just as update() replaced it runs late; only the latest scheduled expiry counts
+    private void expire(Key key, Indicator indicator, long sequence) {
+        Emission emission;
+        synchronized (indicator) {
+            if (indicator.expiry == null || indicator.expirySequence != sequence) return;
+            indicator.expiry = null;
+            emission = request(key, indicator, false);
+            removeIfIdle(key, indicator);
+        }
+        send(emission);
+    }
+
+    private void removeIfIdle(Key key, Indicator indicator) {
+        if (!indicator.typing && indicator.cooldown == null && indicator.expiry == null) {
+            indicator.removed = true;
+            indicators.remove(key, indicator);
+        }
+    }
+
+    // the timer only hands off; emitting may publish to the cluster broker
+    private ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+        return realtimeScheduler.schedule(() -> Thread.ofVirtual().start(task), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private record Key(long senderId, String conversationKey) {
+    }
+
+    private record Emission(Consumer<Boolean> emitter, boolean typing) {
+    }
+
+    private static class Indicator {
+        private boolean typing;
+        private Boolean pending;
+        private boolean removed;
+        private Consumer<Boolean> emitter;
+        private ScheduledFuture<?> cooldown;
+        private ScheduledFuture<?> expiry;
+        private long expirySequence;
+    }
+}
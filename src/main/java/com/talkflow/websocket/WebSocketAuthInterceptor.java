@@ -1,9 +1,15 @@
 package com.talkflow.websocket;
 
 import com.talkflow.configuration.jwt.JWTService;
+import com.talkflow.configuration.jwt.SecurityVersionTable;
+import com.talkflow.configuration.jwt.TokenRevocationList;
+import com.talkflow.configuration.jwt.VerifiedToken;
+import com.talkflow.entity.auth.User;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -23,40 +29,34 @@ public class WebSocketAuthInterceptor implements HandshakeInterceptor {
 
     private final JWTService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationList tokenRevocations;
+    private final SecurityVersionTable securityVersions;
+    private final WebSocketDrainer drainer;
 
     @Override
     public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Map<String, Object> attributes) {
-
-
+        if (drainer.isDraining()) {
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return false;
+        }
 
         String uri = request.getURI().toString();
         String token = extractTokenFromUri(uri);
 
-
         if (token != null) {
-            String userEmail = null;
             try {
-                userEmail = jwtService.extractUsername(token);
-                logger.info("Extracted email from token: {}", userEmail);
-            } catch (Exception e) {
-                logger.error("Failed to extract username from token: {}", e.getMessage());
-            }
-
-            if (userEmail != null) {
-                try {
-                    UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-                    boolean valid = jwtService.isTokenValid(token, userDetails);
-                    logger.info("Token validation result: {}", valid);
-
-                    if (valid) {
-                        attributes.put("user", userDetails);
-                        attributes.put("username", userEmail);
-                        logger.info("Handshake success for user: {}", userEmail);
-                        return true;
-                    }
-                } catch (Exception e) {
-                    logger.error("Error loading user or validating token: {}", e.getMessage());
+                SessionPrincipal principal = authenticate(jwtService.verify(token));
+                if (principal != null) {
+                    attributes.put("username", principal.email());
+                    attributes.put(SessionPrincipal.ATTRIBUTE, principal);
+                    attributes.put(OutboundSession.COALESCE_ATTRIBUTE, "1".equals(extractQueryParam(uri, "batch")));
+                    logger.debug("Handshake success for user: {}", principal.email());
+                    return true;
                 }
+            } catch (JwtException | IllegalArgumentException e) {
+                logger.error("Rejected WebSocket token: {}", e.getMessage());
+            } catch (Exception e) {
+                logger.error("Error loading user or validating token: {}", e.getMessage());
             }
         }
 
@@ -64,6 +64,27 @@ public class WebSocketAuthInterceptor implements HandshakeInterceptor {
         return false;
     }
 
+    // signature and expiry are already verified; tokens issued before the uid claim existed fall back to the database
+    private SessionPrincipal authenticate(VerifiedToken token) {
+        Long userId = token.userId();
+        if (userId == null) {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(token.subject());
+            if (!(userDetails instanceof User user)) return null;
+            return new SessionPrincipal(user.getUserId(), user.getEmail(), Boolean.TRUE.equals(user.getIsActive()));
+        }
+        if (tokenRevocations.isRevoked(userId, token.issuedAt())) {
+            logger.warn("Handshake rejected for user {}: token revoked", userId);
+            return null;
+        }
+        // versions start at 0, so a token issued before the sv claim existed is outdated by any bump since
+        int tokenVersion = token.securityVersion() == null ? 0 : token.securityVersion();
+        if (!securityVersions.isCurrent(userId, tokenVersion)) {
+            logger.warn("Handshake rejected for user {}: security version outdated", userId);
+            return null;
+        }
+        return new SessionPrincipal(userId, token.subject(), Boolean.TRUE.equals(token.active()));
+    }
+
     @Override
     public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Exception exception) {
         if (exception == null) {
@@ -74,18 +95,22 @@ public class WebSocketAuthInterceptor implements HandshakeInterceptor {
     }
 
     private String extractTokenFromUri(String uriString) {
+        return extractQueryParam(uriString, "token");
+    }
+
+    private String extractQueryParam(String uriString, String name) {
         try {
             URI uri = new URI(uriString);
             String query = uri.getQuery();
             if (query != null) {
                 for (String param : query.split("&")) {
-                    if (param.startsWith("token=")) {
-                        return param.substring(6);
+                    if (param.startsWith(name + "=")) {
+                        return param.substring(name.length() + 1);
                     }
                 }
             }
         } catch (Exception e) {
-            logger.error("Failed to parse URI for token: {}", e.getMessage());
+            logger.error("Failed to parse URI for {}: {}", name, e.getMessage());
         }
         return null;
     }
@@ -0,0 +1,158 @@
+package com.talkflow.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.talkflow.service.ChatMessageWriter;
+import com.talkflow.websocket.cluster.SessionRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drains this node's WebSocket traffic on shutdown, before the web server stops: refuse new handshakes,
+ * let dispatched frames finish and persist, tell every client to reconnect after a random delay, flush
+ * their outbound queues and only then close them. Each phase has its own deadline; a phase that runs out
+ * of time is logged and the drain moves on.
+ */
+@Component
+public class WebSocketDrainer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketDrainer.class);
+
+    // stops ahead of the web server's graceful shutdown, which runs at DEFAULT_PHASE - 1024
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 512;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SessionRegistry sessionRegistry;
+    private final ConversationDispatcher dispatcher;
+    private final ChatMessageWriter chatMessageWriter;
+    private final MeterRegistry meterRegistry;
+    private final long dispatchTimeoutMs;
+    private final long persistTimeoutMs;
+    private final long outboundTimeoutMs;
+    private final long reconnectJitterMs;
+    private final Counter closedSessions;
+
+    private volatile boolean running;
+    private volatile boolean draining;
+    private volatile int remainingSessions;
+
+    public WebSocketDrainer(SessionRegistry sessionRegistry, ConversationDispatcher dispatcher, ChatMessageWriter chatMessageWriter, MeterRegistry meterRegistry,
+                            @Value("${app.websocket.drain.dispatch-timeout-ms:5000}") long dispatchTimeoutMs,
+                            @Value("${app.websocket.drain.persist-timeout-ms:10000}") long persistTimeoutMs,
+                            @Value("${app.websocket.drain.outbound-timeout-ms:5000}") long outboundTimeoutMs,
+                            @Value("${app.websocket.drain.reconnect-jitter-ms:30000}") long reconnectJitterMs) {
+        this.sessionRegistry = sessionRegistry;
+        this.dispatcher = dispatcher;
+        this.chatMessageWriter = chatMessageWriter;
+        this.meterRegistry = meterRegistry;
+        this.dispatchTimeoutMs = dispatchTimeoutMs;
+        this.persistTimeoutMs = persistTimeoutMs;
+        this.outboundTimeoutMs = outboundTimeoutMs;
+        this.reconnectJitterMs = reconnectJitterMs;
+
+        Gauge.builder("talkflow.ws.drain.active", this, d -> d.draining ? 1 : 0).register(meterRegistry);
+        Gauge.builder("talkflow.ws.drain.sessions.remaining", this, d -> d.remainingSessions).register(meterRegistry);
+        this.closedSessions = Counter.builder("talkflow.ws.drain.closed").register(meterRegistry);
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        draining = true;
+        List<OutboundSession> sessions = sessionRegistry.allLocalSessions();
+        remainingSessions = sessions.size();
+        logger.info("Draining {} WebSocket sessions", sessions.size());
+
+        try {
+            phase("dispatch", dispatchTimeoutMs, () -> dispatcher.inFlight() == 0);
+            phase("persist", persistTimeoutMs, () -> chatMessageWriter.unflushed() == 0);
+
+            for (OutboundSession session : sessions) {
+                session.send(reconnectFrame(ThreadLocalRandom.current().nextLong(reconnectJitterMs + 1)));
+            }
+            phase("outbound", outboundTimeoutMs, () -> {
+                int pending = 0;
+                for (OutboundSession session : sessions) {
+                    if (session.isOpen() && session.getQueueDepth() > 0) pending++;
+                }
+                remainingSessions = pending;
+                return pending == 0;
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("WebSocket drain interrupted, closing sessions now");
+        } catch (JsonProcessingException e) {
+            logger.error("Could not encode reconnect frame: {}", e.getMessage());
+        }
+
+        // a close handshake with a slow client must not hold up everyone else's
+        try (ExecutorService closers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (OutboundSession session : sessions) {
+                closers.execute(() -> {
+                    try {
+                        session.close(CloseStatus.SERVICE_RESTARTED);
+                        closedSessions.increment();
+                    } catch (IOException e) {
+                        logger.error("Error closing session {}: {}", session.getId(), e.getMessage());
+                    }
+                });
+            }
+        }
+        remainingSessions = 0;
+        running = false;
+        logger.info("WebSocket drain finished");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void phase(String name, long timeoutMs, BooleanSupplier done) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        boolean completed;
+        while (!(completed = done.getAsBoolean()) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        Timer.builder("talkflow.ws.drain.phase").tag("phase", name).tag("completed", String.valueOf(completed)).register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!completed) {
+            logger.warn("WebSocket drain phase '{}' did not finish within {}ms", name, timeoutMs);
+        }
+    }
+
+    private OutboundFrame reconnectFrame(long delayMs) throws JsonProcessingException {
+        return OutboundFrame.encode(objectMapper, Map.of("type", "reconnect", "retryAfterMs", delayMs), FrameKind.CHAT);
+    }
+}
@@ -0,0 +1,30 @@
+package com.talkflow.websocket.cluster;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The few broker operations the distributed session registry and message bus need. Redis backs it in
+ * production; {@link InMemoryClusterBroker} stands in for it when several nodes share one JVM.
+ */
+public interface ClusterBroker {
+
+    void publish(String channel, byte[] message);
+
+    void subscribe(String channel, Consumer<byte[]> listener);
+
+    void setAdd(String key, String member);
+
+    void setRemove(String key, String member);
+
+    // one result per key, in order; fetched in a single round trip where the broker allows it
+    List<Set<String>> setMembers(List<String> keys);
+
+    void put(String key, String value, Duration ttl);
+
+    String get(String key);
+
+    void delete(String key);
+}
@@ -0,0 +1,67 @@
+package com.talkflow.websocket.cluster;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts invalidations on one shared channel as "node\ntopic\npayload". A node skips its own
+ * messages, since the publisher has already applied the change. Broker pub/sub is fire-and-forget, so
+ * the caches behind it keep their TTLs to bound what a node that missed a message can serve.
+ */
+public class DistributedInvalidationBus implements InvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedInvalidationBus.class);
+    private static final String CHANNEL = "talkflow:invalidate";
+
+    private final ClusterBroker broker;
+    private final String nodeId;
+    private final Map<String, Consumer<String>> listeners = new ConcurrentHashMap<>();
+    private final Counter published;
+    private final Counter received;
+
+    public DistributedInvalidationBus(ClusterBroker broker, String nodeId, MeterRegistry meterRegistry) {
+        this.broker = broker;
+        this.nodeId = nodeId;
+        this.published = Counter.builder("talkflow.cluster.invalidations").tag("direction", "published").register(meterRegistry);
+        this.received = Counter.builder("talkflow.cluster.invalidations").tag("direction", "received").register(meterRegistry);
+    }
+
+    public void start() {
+        broker.subscribe(CHANNEL, this::receive);
+    }
+
+    @Override
+    public void publish(String topic, String payload) {
+        try {
+            broker.publish(CHANNEL, (nodeId + "\n" + topic + "\n" + payload).getBytes(StandardCharsets.UTF_8));
+            published.increment();
+        } catch (RuntimeException e) {
+            logger.error("Could not publish {} invalidation {}: {}", topic, payload, e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(String topic, Consumer<String> listener) {
+        listeners.put(topic, listener);
+    }
+
+    private void receive(byte[] message) {
+        String[] parts = new String(message, StandardCharsets.UTF_8).split("\n", 3);
+        if (parts.length < 3 || parts[0].equals(nodeId)) return;
+        received.increment();
+        Consumer<String> listener = listeners.get(parts[1]);
+        if (listener == null) return;
+        try {
+            listener.accept(parts[2]);
+        } catch (RuntimeException e) {
+            logger.error("Could not apply {} invalidation {}: {}", parts[1], parts[2], e.getMessage());
+        }
+    }
+}
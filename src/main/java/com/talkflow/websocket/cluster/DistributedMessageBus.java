@@ -0,0 +1,98 @@
+package com.talkflow.websocket.cluster;
+
+import com.talkflow.websocket.FrameKind;
+import com.talkflow.websocket.OutboundFrame;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.TextMessage;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delivers to this node's sessions directly and publishes one envelope per remote node that holds
+ * recipients, on that node's own channel. The envelope carries the frame kind, the recipient ids
+ * on that node and the already encoded payload.
+ */
+public class DistributedMessageBus implements MessageBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedMessageBus.class);
+    private static final String CHANNEL = "talkflow:deliver:";
+
+    private final DistributedSessionRegistry sessionRegistry;
+    private final LocalMessageBus local;
+    private final ClusterBroker broker;
+    private final Counter published;
+    private final Counter received;
+
+    public DistributedMessageBus(DistributedSessionRegistry sessionRegistry, ClusterBroker broker, MeterRegistry meterRegistry) {
+        this.sessionRegistry = sessionRegistry;
+        this.local = new LocalMessageBus(sessionRegistry);
+        this.broker = broker;
+        this.published = Counter.builder("talkflow.cluster.envelopes").tag("direction", "published").register(meterRegistry);
+        this.received = Counter.builder("talkflow.cluster.envelopes").tag("direction", "received").register(meterRegistry);
+    }
+
+    public void start() {
+        broker.subscribe(CHANNEL + sessionRegistry.nodeId(), this::receive);
+    }
+
+    @Override
+    public void sendToUser(long userId, OutboundFrame frame) {
+        sendToUsers(new long[]{userId}, frame);
+    }
+
+    @Override
+    public void sendToUsers(long[] userIds, OutboundFrame frame) {
+        for (long userId : userIds) {
+            local.deliver(userId, frame);
+        }
+        List<Set<String>> nodes = sessionRegistry.remoteNodesOf(userIds);
+        Map<String, List<Long>> recipientsByNode = new HashMap<>();
+        for (int i = 0; i < userIds.length; i++) {
+            for (String node : nodes.get(i)) {
+                recipientsByNode.computeIfAbsent(node, k -> new ArrayList<>()).add(userIds[i]);
+            }
+        }
+        recipientsByNode.forEach((node, recipients) -> {
+            broker.publish(CHANNEL + node, encode(recipients, frame));
+            published.increment();
+        });
+    }
+
+    private void receive(byte[] envelope) {
+        received.increment();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(envelope);
+            FrameKind kind = FrameKind.values()[buffer.get()];
+            long[] recipients = new long[buffer.getInt()];
+            for (int i = 0; i < recipients.length; i++) {
+                recipients[i] = buffer.getLong();
+            }
+            byte[] payload = new byte[buffer.remaining()];
+            buffer.get(payload);
+            OutboundFrame frame = new OutboundFrame(new TextMessage(payload), kind);
+            for (long userId : recipients) {
+                local.deliver(userId, frame);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Dropping malformed cluster envelope of {} bytes: {}", envelope.length, e.getMessage());
+        }
+    }
+
+    private static byte[] encode(List<Long> recipients, OutboundFrame frame) {
+        byte[] payload = frame.message().asBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + recipients.size() * 8 + payload.length);
+        buffer.put((byte) frame.kind().ordinal());
+        buffer.putInt(recipients.size());
+        recipients.forEach(buffer::putLong);
+        buffer.put(payload);
+        return buffer.array();
+    }
+}
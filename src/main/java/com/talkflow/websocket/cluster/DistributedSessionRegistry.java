@@ -0,0 +1,143 @@
+package com.talkflow.websocket.cluster;
+
+import com.talkflow.websocket.OutboundSession;
+import com.talkflow.websocket.SessionPrincipal;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps this node's sessions in a {@link LocalSessionRegistry} and records in the broker which nodes
+ * each user is connected to. Nodes heartbeat a key with a TTL; entries left behind by a node that
+ * stopped heartbeating are ignored, and a node clears its own leftovers when it starts again.
+ */
+public class DistributedSessionRegistry implements SessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedSessionRegistry.class);
+
+    private static final String NODES_KEY = "talkflow:nodes";
+    private static final String NODE_KEY = "talkflow:node:";
+    private static final String NODE_USERS_KEY = "talkflow:node-users:";
+    private static final String USER_NODES_KEY = "talkflow:user-nodes:";
+    private static final String USER_ID_KEY = "talkflow:user-id:";
+
+    private final LocalSessionRegistry local;
+    private final ClusterBroker broker;
+    private final String nodeId;
+    private final long heartbeatMs;
+    private volatile Set<String> aliveNodes = Set.of();
+    private ScheduledFuture<?> heartbeat;
+
+    public DistributedSessionRegistry(LocalSessionRegistry local, ClusterBroker broker, String nodeId, long heartbeatMs, MeterRegistry meterRegistry) {
+        this.local = local;
+        this.broker = broker;
+        this.nodeId = nodeId;
+        this.heartbeatMs = heartbeatMs;
+        Gauge.builder("talkflow.cluster.nodes.alive", this, r -> r.aliveNodes.size()).register(meterRegistry);
+    }
+
+    public void start(ScheduledExecutorService realtimeScheduler) {
+        for (String userId : broker.setMembers(List.of(NODE_USERS_KEY + nodeId)).get(0)) {
+            broker.setRemove(USER_NODES_KEY + userId, nodeId);
+        }
+        broker.delete(NODE_USERS_KEY + nodeId);
+        broker.setAdd(NODES_KEY, nodeId);
+        heartbeat();
+        // the timer only hands off; the broker round trips run on a virtual thread
+        heartbeat = realtimeScheduler.scheduleAtFixedRate(() -> Thread.ofVirtual().name("cluster-heartbeat").start(this::heartbeat),
+                heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (heartbeat != null) heartbeat.cancel(false);
+        broker.delete(NODE_KEY + nodeId);
+        broker.setRemove(NODES_KEY, nodeId);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void register(SessionPrincipal principal, OutboundSession session) {
+        local.register(principal, session);
+        broker.setAdd(USER_NODES_KEY + principal.userId(), nodeId);
+        broker.setAdd(NODE_USERS_KEY + nodeId, String.valueOf(principal.userId()));
+        broker.put(USER_ID_KEY + principal.email(), String.valueOf(principal.userId()), null);
+    }
+
+    @Override
+    public boolean unregister(SessionPrincipal principal, String sessionId) {
+        boolean last = local.unregister(principal, sessionId);
+        if (last) {
+            broker.setRemove(USER_NODES_KEY + principal.userId(), nodeId);
+            broker.setRemove(NODE_USERS_KEY + nodeId, String.valueOf(principal.userId()));
+        }
+        return last;
+    }
+
+    @Override
+    public List<OutboundSession> localSessions(long userId) {
+        return local.localSessions(userId);
+    }
+
+    @Override
+    public List<OutboundSession> allLocalSessions() {
+        return local.allLocalSessions();
+    }
+
+    @Override
+    public boolean isOnline(long userId) {
+        return local.isOnline(userId) || !remoteNodesOf(new long[]{userId}).get(0).isEmpty();
+    }
+
+    // the email to id mapping never changes, so the broker entry is kept after the user disconnects
+    @Override
+    public Long onlineUserId(String email) {
+        Long userId = local.onlineUserId(email);
+        if (userId != null) return userId;
+        String remote = broker.get(USER_ID_KEY + email);
+        return remote != null ? Long.valueOf(remote) : null;
+    }
+
+    /**
+     * The live nodes other than this one holding sessions of each user, in the order of userIds.
+     */
+    public List<Set<String>> remoteNodesOf(long[] userIds) {
+        List<String> keys = new ArrayList<>(userIds.length);
+        for (long userId : userIds) {
+            keys.add(USER_NODES_KEY + userId);
+        }
+        Set<String> alive = aliveNodes;
+        List<Set<String>> nodes = broker.setMembers(keys);
+        for (Set<String> userNodes : nodes) {
+            userNodes.removeIf(node -> node.equals(nodeId) || !alive.contains(node));
+        }
+        return nodes;
+    }
+
+    private void heartbeat() {
+        try {
+            broker.put(NODE_KEY + nodeId, "alive", Duration.ofMillis(heartbeatMs * 3));
+            Set<String> alive = new HashSet<>();
+            for (String node : broker.setMembers(List.of(NODES_KEY)).get(0)) {
+                if (broker.get(NODE_KEY + node) != null) {
+                    alive.add(node);
+                }
+            }
+            aliveNodes = alive;
+        } catch (RuntimeException e) {
+            logger.error("Cluster heartbeat of node {} failed: {}", nodeId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.talkflow.websocket.cluster;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Broker stand-in for running several nodes inside one JVM, e.g. in tests. Messages are delivered
+ * on the publishing thread.
+ */
+public class InMemoryClusterBroker implements ClusterBroker {
+
+    private final Map<String, List<Consumer<byte[]>>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sets = new ConcurrentHashMap<>();
+    private final Map<String, Value> values = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String channel, byte[] message) {
+        listeners.getOrDefault(channel, List.of()).forEach(listener -> listener.accept(message));
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<byte[]> listener) {
+        listeners.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Override
+    public void setAdd(String key, String member) {
+        sets.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(member);
+    }
+
+    @Override
+    public void setRemove(String key, String member) {
+        sets.computeIfPresent(key, (k, members) -> members.remove(member) && members.isEmpty() ? null : members);
+    }
+
+    @Override
+    public List<Set<String>> setMembers(List<String> keys) {
+        List<Set<String>> members = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            members.add(new HashSet<>(sets.getOrDefault(key, Set.of())));
+        }
+        return members;
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        values.put(key, new Value(value, ttl == null ? Long.MAX_VALUE : System.nanoTime() + ttl.toNanos()));
+    }
+
+    @Override
+    public String get(String key) {
+        Value value = values.get(key);
+        if (value == null) return null;
+        if (value.expiresAt() != Long.MAX_VALUE && value.expiresAt() - System.nanoTime() <= 0) {
+            values.remove(key, value);
+            return null;
+        }
+        return value.value();
+    }
+
+    @Override
+    public void delete(String key) {
+        sets.remove(key);
+        values.remove(key);
+    }
+
+    private record Value(String value, long expiresAt) {
+    }
+}
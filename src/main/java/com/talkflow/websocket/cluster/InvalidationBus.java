@@ -0,0 +1,15 @@
+package com.talkflow.websocket.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Tells the other nodes to drop per-node cached state. Callers apply a change locally themselves and then
+ * publish it; the listener subscribed for the topic runs on every other node, on the broker's inbound
+ * thread, so it must only touch memory.
+ */
+public interface InvalidationBus {
+
+    void publish(String topic, String payload);
+
+    void subscribe(String topic, Consumer<String> listener);
+}
@@ -0,0 +1,17 @@
+package com.talkflow.websocket.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * A single node has nobody to tell.
+ */
+public class LocalInvalidationBus implements InvalidationBus {
+
+    @Override
+    public void publish(String topic, String payload) {
+    }
+
+    @Override
+    public void subscribe(String topic, Consumer<String> listener) {
+    }
+}
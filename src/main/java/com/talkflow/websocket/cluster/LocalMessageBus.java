@@ -0,0 +1,44 @@
+package com.talkflow.websocket.cluster;
+
+import com.talkflow.websocket.OutboundFrame;
+import com.talkflow.websocket.OutboundSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+public class LocalMessageBus implements MessageBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalMessageBus.class);
+
+    private final SessionRegistry sessionRegistry;
+
+    public LocalMessageBus(SessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @Override
+    public void sendToUser(long userId, OutboundFrame frame) {
+        if (!deliver(userId, frame)) {
+            logger.debug("User offline: {}", userId);
+        }
+    }
+
+    @Override
+    public void sendToUsers(long[] userIds, OutboundFrame frame) {
+        for (long userId : userIds) {
+            deliver(userId, frame);
+        }
+    }
+
+    // shared with the distributed bus, which delivers its local share and frames received from other nodes here
+    boolean deliver(long userId, OutboundFrame frame) {
+        List<OutboundSession> userSessions = sessionRegistry.localSessions(userId);
+        for (OutboundSession ws : userSessions) {
+            if (ws.isOpen()) {
+                ws.send(frame);
+            }
+        }
+        return !userSessions.isEmpty();
+    }
+}
@@ -0,0 +1,65 @@
+package com.talkflow.websocket.cluster;
+
+import com.talkflow.websocket.OutboundSession;
+import com.talkflow.websocket.SessionPrincipal;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LocalSessionRegistry implements SessionRegistry {
+
+    private final UserSessionTable sessions;
+    private final Map<String, Long> onlineUserIds = new ConcurrentHashMap<>();
+
+    public LocalSessionRegistry(int stripes, MeterRegistry meterRegistry) {
+        this.sessions = new UserSessionTable(stripes);
+        Gauge.builder("talkflow.ws.registry.users", sessions, UserSessionTable::users).register(meterRegistry);
+        Gauge.builder("talkflow.ws.registry.sessions", sessions, UserSessionTable::sessions).register(meterRegistry);
+        Gauge.builder("talkflow.ws.registry.memory", this, LocalSessionRegistry::estimatedBytes).baseUnit("bytes").register(meterRegistry);
+    }
+
+    @Override
+    public void register(SessionPrincipal principal, OutboundSession session) {
+        sessions.add(principal.userId(), session);
+        onlineUserIds.put(principal.email(), principal.userId());
+    }
+
+    @Override
+    public boolean unregister(SessionPrincipal principal, String sessionId) {
+        if (!sessions.remove(principal.userId(), ws -> ws.getId().equals(sessionId))) return false;
+        onlineUserIds.remove(principal.email(), principal.userId());
+        // a register that slipped in between must not lose its email entry
+        if (!sessions.get(principal.userId()).isEmpty()) {
+            onlineUserIds.put(principal.email(), principal.userId());
+        }
+        return true;
+    }
+
+    @Override
+    public List<OutboundSession> localSessions(long userId) {
+        return sessions.get(userId);
+    }
+
+    @Override
+    public List<OutboundSession> allLocalSessions() {
+        return sessions.snapshot();
+    }
+
+    @Override
+    public boolean isOnline(long userId) {
+        return !localSessions(userId).isEmpty();
+    }
+
+    @Override
+    public Long onlineUserId(String email) {
+        return onlineUserIds.get(email);
+    }
+
+    // the email index is a plain ConcurrentHashMap: roughly 100 bytes per entry plus the key string
+    public long estimatedBytes() {
+        return sessions.estimatedBytes() + 100L * onlineUserIds.size();
+    }
+}
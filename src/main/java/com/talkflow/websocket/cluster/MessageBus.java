@@ -0,0 +1,13 @@
+package com.talkflow.websocket.cluster;
+
+import com.talkflow.websocket.OutboundFrame;
+
+/**
+ * Delivers a frame to every session of the given users, wherever they are connected.
+ */
+public interface MessageBus {
+
+    void sendToUser(long userId, OutboundFrame frame);
+
+    void sendToUsers(long[] userIds, OutboundFrame frame);
+}
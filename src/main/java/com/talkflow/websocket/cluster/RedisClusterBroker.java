@@ -0,0 +1,80 @@
+package com.talkflow.websocket.cluster;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public class RedisClusterBroker implements ClusterBroker {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    public RedisClusterBroker(StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @Override
+    public void publish(String channel, byte[] message) {
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel.getBytes(StandardCharsets.UTF_8), message));
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<byte[]> listener) {
+        listenerContainer.addMessageListener((message, pattern) -> listener.accept(message.getBody()), new ChannelTopic(channel));
+    }
+
+    @Override
+    public void setAdd(String key, String member) {
+        redisTemplate.opsForSet().add(key, member);
+    }
+
+    @Override
+    public void setRemove(String key, String member) {
+        redisTemplate.opsForSet().remove(key, member);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Set<String>> setMembers(List<String> keys) {
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.setCommands().sMembers(key.getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        List<Set<String>> members = new ArrayList<>(replies.size());
+        for (Object reply : replies) {
+            members.add(reply == null ? new HashSet<>() : new HashSet<>((Set<String>) reply));
+        }
+        return members;
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        if (ttl == null) {
+            redisTemplate.opsForValue().set(key, value);
+        } else {
+            redisTemplate.opsForValue().set(key, value, ttl);
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        return redisTemplate.opsForValue().get(key);
+    }
+
+    @Override
+    public void delete(String key) {
+        redisTemplate.delete(key);
+    }
+}
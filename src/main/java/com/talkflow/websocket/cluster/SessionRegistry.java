@@ -0,0 +1,30 @@
+package com.talkflow.websocket.cluster;
+
+import com.talkflow.websocket.OutboundSession;
+import com.talkflow.websocket.SessionPrincipal;
+
+import java.util.List;
+
+/**
+ * Which users are connected, and to which of this node's sessions.
+ */
+public interface SessionRegistry {
+
+    void register(SessionPrincipal principal, OutboundSession session);
+
+    /**
+     * Returns true when the user has no session left on this node.
+     */
+    boolean unregister(SessionPrincipal principal, String sessionId);
+
+    List<OutboundSession> localSessions(long userId);
+
+    /**
+     * Every session currently open on this node, as a snapshot.
+     */
+    List<OutboundSession> allLocalSessions();
+
+    boolean isOnline(long userId);
+
+    Long onlineUserId(String email);
+}
@@ -0,0 +1,215 @@
+package com.talkflow.websocket.cluster;
+
+import com.talkflow.websocket.OutboundSession;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * userId to sessions, without boxing the key. The table is split into stripes, each a linear-probing
+ * open-addressing table behind a StampedLock: writers lock their stripe, readers use an optimistic read
+ * and only fall back to the read lock when a writer got in between. A user's sessions are an immutable
+ * list that is replaced on every change, so fan-out iterates a snapshot without copying.
+ */
+class UserSessionTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Stripe[] stripes;
+
+    UserSessionTable(int stripeCount) {
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    List<OutboundSession> get(long userId) {
+        long hash = mix(userId);
+        return stripes[(int) hash & (stripes.length - 1)].get(userId, hash);
+    }
+
+    void add(long userId, OutboundSession session) {
+        long hash = mix(userId);
+        stripes[(int) hash & (stripes.length - 1)].add(userId, hash, session);
+    }
+
+    /**
+     * Removes the matching sessions and returns true when the user has none left.
+     */
+    boolean remove(long userId, Predicate<OutboundSession> match) {
+        long hash = mix(userId);
+        return stripes[(int) hash & (stripes.length - 1)].remove(userId, hash, match);
+    }
+
+    List<OutboundSession> snapshot() {
+        List<OutboundSession> all = new ArrayList<>(sessions());
+        for (Stripe stripe : stripes) {
+            stripe.collect(all);
+        }
+        return all;
+    }
+
+    int users() {
+        int users = 0;
+        for (Stripe stripe : stripes) users += stripe.size;
+        return users;
+    }
+
+    int sessions() {
+        int sessions = 0;
+        for (Stripe stripe : stripes) sessions += stripe.sessions;
+        return sessions;
+    }
+
+    /**
+     * Rough retained size of the table itself, assuming compressed oops: slot arrays plus the per-user
+     * session lists. The sessions are not counted.
+     */
+    long estimatedBytes() {
+        long bytes = 16L + 4L * stripes.length;
+        for (Stripe stripe : stripes) {
+            Table table = stripe.table;
+            bytes += 64 + 16 + 8L * table.keys.length + 16 + 4L * table.values.length;
+            bytes += 24L * stripe.size + 4L * stripe.sessions;
+        }
+        return bytes;
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        return key ^ (key >>> 33);
+    }
+
+    private record Table(long[] keys, List<OutboundSession>[] values) {
+
+        @SuppressWarnings("unchecked")
+        static Table of(int capacity) {
+            return new Table(new long[capacity], new List[capacity]);
+        }
+
+        // index of the key, or of the empty slot that ends its probe sequence
+        int slot(long key, long hash) {
+            int mask = keys.length - 1;
+            int index = (int) (hash >>> 32) & mask;
+            for (int probes = 0; probes < keys.length; probes++) {
+                if (values[index] == null || keys[index] == key) return index;
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    private static class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table = Table.of(INITIAL_CAPACITY);
+        private volatile int size;
+        private volatile int sessions;
+
+        List<OutboundSession> get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            List<OutboundSession> found = find(table, key, hash);
+            if (lock.validate(stamp)) return found;
+
+            stamp = lock.readLock();
+            try {
+                return find(table, key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void add(long key, long hash, OutboundSession session) {
+            long stamp = lock.writeLock();
+            try {
+                if ((size + 1) * 2 > table.keys.length) resize();
+                Table current = table;
+                int index = current.slot(key, hash);
+                List<OutboundSession> existing = current.values[index];
+                if (existing == null) {
+                    current.keys[index] = key;
+                    current.values[index] = List.of(session);
+                    size++;
+                } else {
+                    OutboundSession[] grown = existing.toArray(new OutboundSession[existing.size() + 1]);
+                    grown[existing.size()] = session;
+                    current.values[index] = List.of(grown);
+                }
+                sessions++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean remove(long key, long hash, Predicate<OutboundSession> match) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int index = current.slot(key, hash);
+                if (index < 0 || current.values[index] == null) return false;
+
+                List<OutboundSession> existing = current.values[index];
+                List<OutboundSession> remaining = existing.stream().filter(match.negate()).toList();
+                sessions -= existing.size() - remaining.size();
+                if (!remaining.isEmpty()) {
+                    current.values[index] = remaining;
+                    return false;
+                }
+                delete(current, index);
+                size--;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void collect(List<OutboundSession> into) {
+            long stamp = lock.readLock();
+            try {
+                for (List<OutboundSession> userSessions : table.values) {
+                    if (userSessions != null) into.addAll(userSessions);
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private static List<OutboundSession> find(Table table, long key, long hash) {
+            int index = table.slot(key, hash);
+            List<OutboundSession> found = index < 0 ? null : table.values[index];
+            return found == null ? List.of() : found;
+        }
+
+        // backward-shift deletion keeps probe sequences intact without tombstones
+        private static void delete(Table table, int index) {
+            int mask = table.keys.length - 1;
+            int hole = index;
+            int next = (hole + 1) & mask;
+            while (table.values[next] != null) {
+                int home = (int) (mix(table.keys[next]) >>> 32) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    table.keys[hole] = table.keys[next];
+                    table.values[hole] = table.values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            table.keys[hole] = 0;
+            table.values[hole] = null;
+        }
+
+        private void resize() {
+            Table old = table;
+            Table grown = Table.of(old.keys.length * 2);
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.values[i] == null) continue;
+                int index = grown.slot(old.keys[i], mix(old.keys[i]));
+                grown.keys[index] = old.keys[i];
+                grown.values[index] = old.values[i];
+            }
+            table = grown;
+        }
+    }
+}
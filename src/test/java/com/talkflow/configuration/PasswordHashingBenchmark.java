@@ -0,0 +1,63 @@
+package com.talkflow.configuration;
+
+import com.talkflow.exception.HashingCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Login checks per second through BoundedPasswordEncoder at several BCrypt costs, with more concurrent
+ * callers than hashing threads so the queue and the 429 path are exercised. Pool settings are the
+ * application defaults; absolute numbers scale with the cores available.
+ */
+@Tag("benchmark")
+class PasswordHashingBenchmark {
+
+    private static final int CALLERS = 16;
+    private static final long DURATION_MS = 4_000;
+
+    @Test
+    void loginsPerSecondByCost() throws InterruptedException {
+        for (int strength : new int[]{8, 10, 12}) {
+            run(strength);
+        }
+    }
+
+    private void run(int strength) throws InterruptedException {
+        String hash = new BCryptPasswordEncoder(strength).encode("correct horse battery staple");
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(strength, 2, 64, 2_000, new SimpleMeterRegistry());
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        long deadline = System.currentTimeMillis() + DURATION_MS;
+
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            callers.add(Thread.ofPlatform().start(() -> {
+                while (System.currentTimeMillis() < deadline) {
+                    try {
+                        if (encoder.matches("correct horse battery staple", hash)) succeeded.incrementAndGet();
+                    } catch (HashingCapacityExceededException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        encoder.shutdown();
+
+        double seconds = DURATION_MS / 1000.0;
+        System.out.printf(Locale.ROOT, "bcrypt cost %2d: %8.1f logins/s %8.1f rejected/s (%d callers, %d cores)%n",
+                strength, succeeded.get() / seconds, rejected.get() / seconds, CALLERS, Runtime.getRuntime().availableProcessors());
+        assertThat(succeeded).hasPositiveValue();
+    }
+}
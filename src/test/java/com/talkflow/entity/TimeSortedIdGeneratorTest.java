@@ -0,0 +1,76 @@
+package com.talkflow.entity;
+
+import org.hibernate.generator.EventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimeSortedIdGeneratorTest {
+
+    @AfterEach
+    void resetNodeId() {
+        TimeSortedIdGenerator.setNodeId(0);
+    }
+
+    // more ids than one second's sequence holds, so the clock has to be borrowed from the next second
+    @Test
+    void idsStayStrictlyIncreasingPastTheSequenceLimit() {
+        long previous = TimeSortedIdGenerator.nextId();
+        for (int i = 0; i < 200_000; i++) {
+            long id = TimeSortedIdGenerator.nextId();
+            assertThat(id).isGreaterThan(previous);
+            previous = id;
+        }
+        assertThat(previous).isLessThan(1L << 53);
+    }
+
+    @Test
+    void carriesTheNodeIdBelowTheSeconds() {
+        TimeSortedIdGenerator.setNodeId(17);
+
+        long id = TimeSortedIdGenerator.nextId();
+
+        assertThat((id >> 16) & 31).isEqualTo(17);
+    }
+
+    @Test
+    void rejectsNodeIdsThatDoNotFitFiveBits() {
+        assertThatThrownBy(() -> TimeSortedIdGenerator.setNodeId(32)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TimeSortedIdGenerator.setNodeId(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void earlierByStaysBelowEveryIdFromTheHeldBackWindow() {
+        long id = id(100, 3, 5);
+
+        long cursor = TimeSortedIdGenerator.earlierBy(id, 10_000);
+
+        assertThat(cursor).isLessThan(id(89, 0, 0));
+        assertThat(cursor).isEqualTo(id(88, 31, 65_535));
+        assertThat(TimeSortedIdGenerator.earlierBy(id, 1)).isEqualTo(id(97, 31, 65_535));
+        assertThat(TimeSortedIdGenerator.earlierBy(id(2, 0, 0), 5_000)).isZero();
+    }
+
+    @Test
+    void latestByBoundsEveryIdIssuedSoFar() {
+        long id = TimeSortedIdGenerator.nextId();
+
+        assertThat(TimeSortedIdGenerator.latestBy(0)).isGreaterThanOrEqualTo(id);
+        assertThat(TimeSortedIdGenerator.latestBy(5_000)).isLessThan(id + (7L << 21));
+        assertThat(TimeSortedIdGenerator.latestBy(5_000)).isLessThan(Long.MAX_VALUE);
+    }
+
+    @Test
+    void keepsIdsAssignedBeforePersist() {
+        TimeSortedIdGenerator generator = new TimeSortedIdGenerator();
+
+        assertThat(generator.generate(null, null, 42L, EventType.INSERT)).isEqualTo(42L);
+        assertThat(generator.generate(null, null, null, EventType.INSERT)).isInstanceOf(Long.class);
+    }
+
+    private static long id(long second, long node, long sequence) {
+        return (second << 21) | (node << 16) | sequence;
+    }
+}
@@ -0,0 +1,40 @@
+package com.talkflow.service;
+
+import com.talkflow.entity.TimeSortedIdGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ConversationReceiptServiceTest {
+
+    private final ConversationReceiptService receipts = new ConversationReceiptService(mock(JdbcTemplate.class),
+            mock(ScheduledExecutorService.class), new SimpleMeterRegistry(), 1_000, 100, 5_000);
+
+    @Test
+    void watermarksOnlyMoveForward() {
+        long first = TimeSortedIdGenerator.nextId();
+        long second = TimeSortedIdGenerator.nextId();
+
+        assertThat(receipts.acknowledge(1, "1_2", second, first)).isEqualTo(new ConversationReceiptService.Watermark(second, first));
+        assertThat(receipts.acknowledge(1, "1_2", first, first)).isNull();
+        assertThat(receipts.acknowledge(1, "1_2", 0, second)).isEqualTo(new ConversationReceiptService.Watermark(second, second));
+    }
+
+    // a read watermark far in the future would mark every later message as read for good
+    @Test
+    void ignoresAcksForIdsThatWereNeverIssued() {
+        long issued = TimeSortedIdGenerator.nextId();
+
+        assertThat(receipts.isIssued(issued, issued)).isTrue();
+        assertThat(receipts.isIssued(0, Long.MAX_VALUE)).isFalse();
+        assertThat(receipts.isIssued(Long.MAX_VALUE, 0)).isFalse();
+        assertThat(receipts.isIssued(-1, 0)).isFalse();
+        assertThat(receipts.acknowledge(1, "1_2", 0, Long.MAX_VALUE)).isNull();
+        assertThat(receipts.acknowledge(1, "1_2", 0, issued)).isEqualTo(new ConversationReceiptService.Watermark(issued, issued));
+    }
+}
@@ -0,0 +1,59 @@
+package com.talkflow.service;
+
+import com.talkflow.repository.auth.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrivateConversationTrackerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final TransactionStatus transaction = mock(TransactionStatus.class);
+    private PrivateConversationTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        tracker = new PrivateConversationTracker(jdbcTemplate, transactionManager, mock(UserRepository.class), new SimpleMeterRegistry(), 100);
+    }
+
+    @Test
+    void insertsTheConversationAndBothCountersInOneTransactionOnce() {
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(1);
+
+        tracker.messagePersisted("1_2", 1, 2);
+        tracker.messagePersisted("1_2", 2, 1);
+
+        verify(jdbcTemplate, times(1)).update(anyString(), any(), any(), any());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        verify(transactionManager).commit(transaction);
+    }
+
+    // a conversation row committed without its increments would turn every later insert into a no-op
+    @Test
+    void rollsBackAndRetriesWhenTheCountersFail() {
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new QueryTimeoutException("lock wait timeout")).thenReturn(new int[]{1, 1});
+
+        assertThatThrownBy(() -> tracker.messagePersisted("1_2", 1, 2)).isInstanceOf(QueryTimeoutException.class);
+        verify(transactionManager).rollback(transaction);
+
+        tracker.messagePersisted("1_2", 1, 2);
+        verify(jdbcTemplate, times(2)).update(anyString(), any(), any(), any());
+        verify(transactionManager).commit(transaction);
+    }
+}
@@ -0,0 +1,105 @@
+package com.talkflow.websocket;
+
+import com.talkflow.websocket.cluster.DistributedInvalidationBus;
+import com.talkflow.websocket.cluster.InMemoryClusterBroker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// two nodes in one JVM: the caller rings on node A, the callee answers on node B
+class CallSessionRegistryTest {
+
+    private static final String CALLER = "alice@example.com";
+    private static final String CALLEE = "bob@example.com";
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final InMemoryClusterBroker broker = new InMemoryClusterBroker();
+    private final AtomicInteger timedOut = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void anAcceptOnTheCalleesNodeCancelsTheTimeoutOnTheCallersNode() throws InterruptedException {
+        CallSessionRegistry nodeA = node("a", 200);
+        CallSessionRegistry nodeB = node("b", 200);
+
+        nodeA.ringing(CALLER, CALLEE, timedOut::incrementAndGet);
+        nodeB.accepted(CALLEE, CALLER);
+        Thread.sleep(500);
+
+        assertThat(timedOut).hasValue(0);
+        assertThat(nodeA.count(CallState.ACCEPTED)).isEqualTo(1);
+    }
+
+    @Test
+    void aDeclineOnTheCalleesNodeEndsTheCallOnTheCallersNode() throws InterruptedException {
+        CallSessionRegistry nodeA = node("a", 200);
+        CallSessionRegistry nodeB = node("b", 200);
+
+        nodeA.ringing(CALLER, CALLEE, timedOut::incrementAndGet);
+        nodeB.ended(CALLEE, CALLER);
+        Thread.sleep(500);
+
+        assertThat(timedOut).hasValue(0);
+        assertThat(nodeA.count(CallState.RINGING)).isZero();
+    }
+
+    @Test
+    void anUnansweredRingTimesOutOnce() throws InterruptedException {
+        CallSessionRegistry nodeA = node("a", 50);
+        node("b", 50);
+        CountDownLatch ended = new CountDownLatch(1);
+
+        nodeA.ringing(CALLER, CALLEE, () -> {
+            timedOut.incrementAndGet();
+            ended.countDown();
+        });
+
+        assertThat(ended.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+        assertThat(timedOut).hasValue(1);
+        assertThat(nodeA.count(CallState.RINGING)).isZero();
+    }
+
+    // the call is registered before its timeout is scheduled, so an immediate timeout still finds it
+    @Test
+    void aZeroTimeoutStillEndsTheRegisteredCall() throws InterruptedException {
+        CallSessionRegistry nodeA = node("a", 0);
+        CountDownLatch ended = new CountDownLatch(1);
+
+        nodeA.ringing(CALLER, CALLEE, ended::countDown);
+
+        assertThat(ended.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(nodeA.count(CallState.RINGING)).isZero();
+    }
+
+    @Test
+    void anAcceptAfterTheTimeoutDoesNotReviveTheCall() throws InterruptedException {
+        CallSessionRegistry nodeA = node("a", 0);
+        CallSessionRegistry nodeB = node("b", 0);
+        CountDownLatch ended = new CountDownLatch(1);
+
+        nodeA.ringing(CALLER, CALLEE, ended::countDown);
+        assertThat(ended.await(5, TimeUnit.SECONDS)).isTrue();
+        nodeB.accepted(CALLEE, CALLER);
+
+        assertThat(nodeA.count(CallState.ACCEPTED)).isZero();
+    }
+
+    private CallSessionRegistry node(String nodeId, long ringTimeoutMs) {
+        DistributedInvalidationBus bus = new DistributedInvalidationBus(broker, nodeId, new SimpleMeterRegistry());
+        bus.start();
+        return new CallSessionRegistry(scheduler, bus, new SimpleMeterRegistry(), ringTimeoutMs);
+    }
+}
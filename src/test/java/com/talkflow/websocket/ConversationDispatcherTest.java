@@ -0,0 +1,125 @@
+package com.talkflow.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationDispatcherTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ConversationDispatcher dispatcher;
+
+    @AfterEach
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    // fewer stripes than conversations, so unrelated conversations share stripes and queues interleave
+    @Test
+    void runsEachConversationInDispatchOrderAndNeverConcurrently() throws Exception {
+        dispatcher = new ConversationDispatcher(registry, 8, 10_000, 5_000);
+        int producers = 4;
+        int conversationsPerProducer = 25;
+        int tasksPerConversation = 200;
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers * conversationsPerProducer * tasksPerConversation);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int n = 0; n < tasksPerConversation; n++) {
+                    for (int c = 0; c < conversationsPerProducer; c++) {
+                        String key = producer + "_" + c;
+                        List<Integer> order = seen.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>()));
+                        AtomicInteger active = running.computeIfAbsent(key, k -> new AtomicInteger());
+                        int sequence = n;
+                        try {
+                            dispatcher.dispatch(key, () -> {
+                                if (active.incrementAndGet() > 1) overlaps.incrementAndGet();
+                                order.add(sequence);
+                                active.decrementAndGet();
+                                done.countDown();
+                            });
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(overlaps).hasValue(0);
+        assertThat(seen).hasSize(producers * conversationsPerProducer);
+        List<Integer> expected = IntStream.range(0, tasksPerConversation).boxed().toList();
+        seen.forEach((key, order) -> assertThat(order).as(key).containsExactlyElementsOf(expected));
+        assertThat(dispatcher.inFlight()).isZero();
+    }
+
+    @Test
+    void aBlockedConversationDoesNotHoldUpAnotherStripe() throws Exception {
+        dispatcher = new ConversationDispatcher(registry, 64, 100, 1_000);
+        CountDownLatch otherRan = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // "a" and "b" hash to neighbouring stripes
+        dispatcher.dispatch("a", () -> await(release));
+        dispatcher.dispatch("b", otherRan::countDown);
+
+        assertThat(otherRan.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    void aFailingTaskDoesNotStopTheConversation() throws Exception {
+        dispatcher = new ConversationDispatcher(registry, 4, 100, 1_000);
+        CountDownLatch nextRan = new CountDownLatch(1);
+
+        dispatcher.dispatch("1_2", () -> {
+            throw new IllegalStateException("boom");
+        });
+        dispatcher.dispatch("1_2", nextRan::countDown);
+
+        assertThat(nextRan.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void rejectsOnceTheInFlightLimitStaysFullPastTheAdmissionTimeout() throws Exception {
+        dispatcher = new ConversationDispatcher(registry, 4, 1, 50);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertThat(dispatcher.dispatch("1_2", () -> await(release))).isTrue();
+        assertThat(dispatcher.dispatch("3_4", () -> { })).isFalse();
+        assertThat(dispatcher.inFlight()).isEqualTo(1);
+        assertThat(registry.counter("talkflow.ws.dispatch.rejected").count()).isEqualTo(1);
+
+        release.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.talkflow.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One group message to 500 members with two devices each: serialized per session, as sendToUser used
+ * to, against one shared pre-encoded frame. Measured for the encoding alone and end to end through
+ * the real outbound queue and writer.
+ * <p>
+ * A JMH benchmark; the tagged test only launches it, so it runs with the other benchmarks:
+ * {@code mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=FanOutBenchmark}
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 2, jvmArgsAppend = "-Xmx512m")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FanOutBenchmark {
+
+    private static final int SESSIONS = 1_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<OutboundSession> sessions = new ArrayList<>();
+    private Map<String, Object> payload;
+
+    @Setup
+    public void setUp() {
+        OutboundSessionFactory.Metrics metrics = new OutboundSessionFactory.Metrics(new SimpleMeterRegistry());
+        for (int i = 0; i < SESSIONS; i++) {
+            // writes run inline on a no-op socket, so only encoding and queueing are measured; no coalescing, no scheduler
+            sessions.add(new OutboundSession(noopSocket(), Runnable::run, metrics, 10_000, 524_288, null, 0, 0));
+        }
+        payload = new LinkedHashMap<>();
+        payload.put("type", "group");
+        payload.put("groupId", 42);
+        payload.put("from", "alice@example.com");
+        payload.put("content", "Lunch at noon? The usual place, I booked a table for the whole team.");
+        payload.put("id", 7_340_123_456_789L);
+    }
+
+    // the serialization share alone, which is what the per-message encoding changed
+    @Benchmark
+    public void encodingPerSession(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < SESSIONS; i++) {
+            blackhole.consume(new TextMessage(objectMapper.writeValueAsString(payload)).getPayloadLength());
+        }
+    }
+
+    @Benchmark
+    public OutboundFrame encodingOnce() throws Exception {
+        return OutboundFrame.encode(objectMapper, payload, FrameKind.CHAT);
+    }
+
+    @Benchmark
+    public void fanOutEncodedPerSession() throws Exception {
+        for (OutboundSession ws : sessions) {
+            ws.send(new OutboundFrame(new TextMessage(objectMapper.writeValueAsString(payload)), FrameKind.CHAT));
+        }
+    }
+
+    @Benchmark
+    public void fanOutEncodedOnce() throws Exception {
+        OutboundFrame frame = OutboundFrame.encode(objectMapper, payload, FrameKind.CHAT);
+        for (OutboundSession ws : sessions) {
+            ws.send(frame);
+        }
+    }
+
+    @Test
+    void compareWithJmh() throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(FanOutBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+
+        assertThat(results).hasSize(4);
+    }
+
+    private static WebSocketSession noopSocket() {
+        return (WebSocketSession) Proxy.newProxyInstance(WebSocketSession.class.getClassLoader(), new Class<?>[]{WebSocketSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> true;
+                    case "getId" -> "benchmark";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
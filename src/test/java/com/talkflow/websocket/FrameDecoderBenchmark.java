@@ -0,0 +1,95 @@
+package com.talkflow.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The streaming FrameDecoder against the readTree path it replaced, which built a JsonNode per frame,
+ * read fields with asText and re-encoded the tree to forward it. The decoder forwards the raw payload.
+ * Frames arrive as String-backed TextMessages, as the container delivers them.
+ * <p>
+ * A JMH benchmark; the tagged test only launches it, so it runs with the other benchmarks:
+ * {@code mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=FrameDecoderBenchmark}
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 2, jvmArgsAppend = "-Xmx512m")
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FrameDecoderBenchmark {
+
+    @Param({"private", "signal"})
+    public String frame;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FrameDecoder decoder = new FrameDecoder(65_536, 10_000, 200);
+    private TextMessage message;
+
+    @Setup
+    public void setUp() {
+        message = new TextMessage(switch (frame) {
+            case "private" -> "{\"type\":\"private\",\"to\":\"bob@example.com\","
+                    + "\"content\":\"Are we still on for the demo tomorrow? I moved it to 3pm so Carol can join.\"}";
+            // the SDP is a nested object the decoder skips instead of materializing
+            case "signal" -> {
+                StringBuilder sdp = new StringBuilder();
+                for (int i = 0; i < 40; i++) {
+                    sdp.append("a=candidate:").append(i).append(" 1 udp 2122260223 192.168.1.").append(i).append(" 5").append(1000 + i).append(" typ host\\r\\n");
+                }
+                yield "{\"type\":\"signal\",\"to\":\"bob@example.com\","
+                        + "\"signal\":{\"type\":\"offer\",\"sdp\":\"" + sdp + "\",\"candidates\":[1,2,3,{\"mid\":\"0\"}]}}";
+            }
+            default -> throw new IllegalArgumentException(frame);
+        });
+    }
+
+    @Benchmark
+    public void readTree(Blackhole blackhole) throws Exception {
+        JsonNode json = objectMapper.readTree(message.getPayload());
+        blackhole.consume(json.has("type") ? json.get("type").asText() : "private");
+        blackhole.consume(json.get("to").asText());
+        blackhole.consume(json.has("content") ? json.get("content").asText() : null);
+        blackhole.consume(objectMapper.writeValueAsBytes(json));
+    }
+
+    @Benchmark
+    public InboundFrame frameDecoder() {
+        return decoder.decode(message);
+    }
+
+    @Test
+    void compareWithJmh() throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(FrameDecoderBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+
+        assertThat(results).hasSize(4);
+    }
+}
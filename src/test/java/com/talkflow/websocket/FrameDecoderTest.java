@@ -0,0 +1,118 @@
+package com.talkflow.websocket;
+
+import com.talkflow.websocket.InboundFrame.Ack;
+import com.talkflow.websocket.InboundFrame.CallSignal;
+import com.talkflow.websocket.InboundFrame.GroupMessage;
+import com.talkflow.websocket.InboundFrame.PresenceUpdate;
+import com.talkflow.websocket.InboundFrame.PrivateMessage;
+import com.talkflow.websocket.InboundFrame.Resume;
+import com.talkflow.websocket.InboundFrame.RtcSignal;
+import com.talkflow.websocket.InboundFrame.Typing;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FrameDecoderTest {
+
+    private final FrameDecoder decoder = new FrameDecoder(256, 20, 2);
+
+    @Test
+    void framesWithoutATypeArePrivateMessages() {
+        InboundFrame frame = decode("{\"to\":\"bob@example.com\",\"content\":\"hi\"}");
+
+        assertThat(frame).isEqualTo(new PrivateMessage("bob@example.com", "hi", frame.raw()));
+    }
+
+    @Test
+    void decodesEveryFrameType() {
+        assertThat(decode("{\"type\":\"group\",\"groupId\":\"12\",\"content\":\"hey\"}"))
+                .isInstanceOfSatisfying(GroupMessage.class, m -> {
+                    assertThat(m.groupId()).isEqualTo(12);
+                    assertThat(m.content()).isEqualTo("hey");
+                });
+        assertThat(decode("{\"type\":\"call-request\",\"to\":\"bob\"}"))
+                .isInstanceOfSatisfying(CallSignal.class, c -> {
+                    assertThat(c.type()).isEqualTo("call-request");
+                    assertThat(c.to()).isEqualTo("bob");
+                });
+        assertThat(decode("{\"type\":\"ack\",\"chatId\":\"1_2\",\"read\":7}"))
+                .isInstanceOfSatisfying(Ack.class, a -> {
+                    assertThat(a.chatId()).isEqualTo("1_2");
+                    assertThat(a.delivered()).isZero();
+                    assertThat(a.read()).isEqualTo(7);
+                });
+        assertThat(decode("{\"type\":\"typing\",\"groupId\":3,\"state\":\"stop\"}"))
+                .isInstanceOfSatisfying(Typing.class, t -> {
+                    assertThat(t.to()).isNull();
+                    assertThat(t.groupId()).isEqualTo(3L);
+                    assertThat(t.typing()).isFalse();
+                });
+        assertThat(decode("{\"type\":\"presence\",\"state\":\"away\"}"))
+                .isInstanceOfSatisfying(PresenceUpdate.class, p -> assertThat(p.state()).isEqualTo("away"));
+        assertThat(decode("{\"type\":\"resume\",\"cursors\":{\"1_2\":5,\"1_3\":\"9\"}}"))
+                .isInstanceOfSatisfying(Resume.class, r -> {
+                    assertThat(r.cursors()).containsExactly(Map.entry("1_2", 5L), Map.entry("1_3", 9L));
+                    assertThat(r.since()).isNull();
+                });
+        assertThat(decode("{\"type\":\"resume\",\"since\":40}"))
+                .isInstanceOfSatisfying(Resume.class, r -> {
+                    assertThat(r.cursors()).isEmpty();
+                    assertThat(r.since()).isEqualTo(40L);
+                });
+    }
+
+    // session descriptions are nested objects the server never reads, so they are skipped but forwarded intact
+    @Test
+    void skipsNestedFieldsButKeepsThemInTheRawPayload() {
+        String payload = "{\"type\":\"signal\",\"sdp\":{\"type\":\"offer\",\"lines\":[\"a\",\"b\"]},\"to\":\"bob\"}";
+
+        InboundFrame frame = decode(payload);
+
+        assertThat(frame).isInstanceOfSatisfying(RtcSignal.class, s -> assertThat(s.to()).isEqualTo("bob"));
+        assertThat(frame.raw().getPayload()).isEqualTo(payload);
+    }
+
+    @Test
+    void requiresTheFieldsEachTypeRoutesOn() {
+        assertInvalid("{\"content\":\"hi\"}", "Missing field to");
+        assertInvalid("{\"type\":\"call-end\"}", "Missing field to");
+        assertInvalid("{\"type\":\"group\",\"content\":\"hi\"}", "Missing field groupId");
+        assertInvalid("{\"type\":\"ack\"}", "Missing field chatId");
+        assertInvalid("{\"type\":\"typing\",\"to\":\"bob\",\"groupId\":1}", "either to or groupId");
+        assertInvalid("{\"type\":\"resume\"}", "either cursors or since");
+    }
+
+    @Test
+    void rejectsMalformedFrames() {
+        assertInvalid("[1,2]", "not a JSON object");
+        assertInvalid("{\"to\":\"bob\",\"content\":", "Malformed frame");
+        assertInvalid("{\"to\":\"bob\",\"content\":\"hi\"} {}", "Trailing data");
+        assertInvalid("{\"to\":{\"nested\":true},\"content\":\"hi\"}", "must be a scalar");
+        assertInvalid("{\"type\":\"group\",\"groupId\":\"twelve\",\"content\":\"hi\"}", "must be a number");
+        assertInvalid("{\"type\":\"resume\",\"cursors\":{\"a\":1,\"b\":2,\"c\":3}}", "More than 2 resume cursors");
+    }
+
+    @Test
+    void flagsOversizedFramesAndContentAsTooLarge() {
+        assertThatThrownBy(() -> decode("{\"to\":\"bob\",\"content\":\"" + "x".repeat(300) + "\"}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class, e -> assertThat(e.isTooLarge()).isTrue());
+        assertThatThrownBy(() -> decode("{\"to\":\"bob\",\"content\":\"" + "x".repeat(21) + "\"}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class, e -> assertThat(e.isTooLarge()).isTrue());
+        assertThatThrownBy(() -> decode("{\"to\":\"bob\"}"))
+                .isInstanceOfSatisfying(InvalidFrameException.class, e -> assertThat(e.isTooLarge()).isFalse());
+    }
+
+    private InboundFrame decode(String payload) {
+        return decoder.decode(new TextMessage(payload));
+    }
+
+    private void assertInvalid(String payload, String message) {
+        assertThatThrownBy(() -> decode(payload))
+                .isInstanceOf(InvalidFrameException.class)
+                .hasMessageContaining(message);
+    }
+}
@@ -0,0 +1,252 @@
+package com.talkflow.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboundSessionTest {
+
+    // writer tasks are queued here and run by the test, so it decides when the socket is written to
+    private final Queue<Runnable> writerTasks = new ConcurrentLinkedQueue<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OutboundSessionFactory.Metrics metrics = new OutboundSessionFactory.Metrics(registry);
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    private WebSocketSession delegate;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(WebSocketSession.class);
+        when(delegate.getId()).thenReturn("s1");
+        when(delegate.isOpen()).thenReturn(true);
+    }
+
+    @Test
+    void writesQueuedFramesInOrderOnlyOnTheWriter() throws Exception {
+        OutboundSession session = session(10_000, 1_000);
+
+        session.send(frame("{\"n\":1}", FrameKind.CHAT));
+        session.send(frame("{\"n\":2}", FrameKind.EPHEMERAL));
+        session.sendMessage(new TextMessage("{\"n\":3}"));
+
+        verify(delegate, never()).sendMessage(any());
+        assertThat(session.getQueueDepth()).isEqualTo(3);
+        assertThat(writerTasks).hasSize(1);
+
+        runWriter();
+
+        assertThat(sent()).containsExactly("{\"n\":1}", "{\"n\":2}", "{\"n\":3}");
+        assertThat(session.getQueueDepth()).isZero();
+        assertThat(session.getBufferedBytes()).isZero();
+    }
+
+    @Test
+    void dropsTheOldestEphemeralFrameToMakeRoom() throws Exception {
+        OutboundSession session = session(10_000, 21);
+
+        session.send(frame("{\"typing\":1}", FrameKind.EPHEMERAL));
+        session.send(frame("{\"n\":1}", FrameKind.CHAT));
+        session.send(frame("{\"n\":2}", FrameKind.CHAT));
+        runWriter();
+
+        assertThat(sent()).containsExactly("{\"n\":1}", "{\"n\":2}");
+        assertThat(registry.counter("talkflow.ws.outbound.dropped").count()).isEqualTo(1);
+        verify(delegate, never()).close(any());
+    }
+
+    @Test
+    void dropsANewEphemeralFrameWhenOnlyChatFramesAreQueued() throws Exception {
+        OutboundSession session = session(10_000, 14);
+
+        session.send(frame("{\"n\":1}", FrameKind.CHAT));
+        session.send(frame("{\"n\":2}", FrameKind.CHAT));
+        session.send(frame("{\"typing\":1}", FrameKind.EPHEMERAL));
+        runWriter();
+
+        assertThat(sent()).containsExactly("{\"n\":1}", "{\"n\":2}");
+        assertThat(registry.counter("talkflow.ws.outbound.dropped").count()).isEqualTo(1);
+        verify(delegate, never()).close(any());
+    }
+
+    @Test
+    void closesTheSessionWhenChatFramesOverflowTheBuffer() throws Exception {
+        OutboundSession session = session(10_000, 14);
+
+        session.send(frame("{\"n\":1}", FrameKind.CHAT));
+        session.send(frame("{\"n\":2}", FrameKind.CHAT));
+        session.send(frame("{\"n\":3}", FrameKind.CHAT));
+        session.send(frame("{\"n\":4}", FrameKind.CHAT));
+        runWriter();
+
+        verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(delegate, never()).sendMessage(any());
+        assertThat(session.getQueueDepth()).isZero();
+        assertThat(registry.counter("talkflow.ws.outbound.closed", "reason", "overflow").count()).isEqualTo(1);
+    }
+
+    // a single frame larger than the buffer still goes out, otherwise it could never be delivered
+    @Test
+    void acceptsAnOversizedFrameIntoAnEmptyQueue() throws Exception {
+        OutboundSession session = session(10_000, 4);
+
+        session.send(frame("{\"n\":1}", FrameKind.CHAT));
+        runWriter();
+
+        assertThat(sent()).containsExactly("{\"n\":1}");
+    }
+
+    @Test
+    void closesAWriterStuckPastTheSendTimeLimit() throws Exception {
+        OutboundSession session = session(50, 1_000);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return null;
+        }).when(delegate).sendMessage(any());
+
+        assertThat(session.closeIfSendOverdue()).isFalse();
+
+        session.send(frame("{\"n\":1}", FrameKind.CHAT));
+        Thread stuck = Thread.ofVirtual().start(writerTasks.poll());
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(session.closeIfSendOverdue()).isFalse();
+
+        Thread.sleep(100);
+        assertThat(session.closeIfSendOverdue()).isTrue();
+        assertThat(session.closeIfSendOverdue()).isFalse();
+        runWriter();
+        verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(registry.counter("talkflow.ws.outbound.closed", "reason", "send-time-limit").count()).isEqualTo(1);
+
+        release.countDown();
+        stuck.join();
+    }
+
+    @Test
+    void pingsGoAheadOfQueuedFrames() throws Exception {
+        OutboundSession session = session(10_000, 1_000);
+
+        session.send(frame("{\"n\":1}", FrameKind.CHAT));
+        session.ping();
+        runWriter();
+
+        ArgumentCaptor<WebSocketMessage<?>> messages = ArgumentCaptor.captor();
+        verify(delegate, atLeastOnce()).sendMessage(messages.capture());
+        assertThat(messages.getAllValues()).extracting(m -> m.getClass().getSimpleName())
+                .containsExactly("PingMessage", "TextMessage");
+    }
+
+    @Test
+    void coalescesFramesQueuedDuringTheWindowIntoOneArray() throws Exception {
+        OutboundSession session = coalescingSession(1_000);
+
+        session.send(frame("{\"n\":1}", FrameKind.CHAT));
+        session.send(frame("{\"n\":2}", FrameKind.EPHEMERAL));
+        session.send(frame("{\"n\":3}", FrameKind.CHAT));
+
+        assertThat(writerTasks).isEmpty();
+        runWindow();
+
+        assertThat(sent()).containsExactly("[{\"n\":1},{\"n\":2},{\"n\":3}]");
+        assertThat(session.getBufferedBytes()).isZero();
+    }
+
+    @Test
+    void splitsBatchesAtTheByteBudgetAndSendsALoneFrameAsAnObject() throws Exception {
+        // brackets plus two 7 byte frames and a comma come to 17 bytes, a third frame would need 25
+        OutboundSession session = coalescingSession(20);
+
+        session.send(frame("{\"n\":1}", FrameKind.CHAT));
+        session.send(frame("{\"n\":2}", FrameKind.CHAT));
+        session.send(frame("{\"n\":3}", FrameKind.CHAT));
+        runWindow();
+
+        assertThat(sent()).containsExactly("[{\"n\":1},{\"n\":2}]", "{\"n\":3}");
+    }
+
+    @Test
+    void sessionsThatDidNotAskForBatchingAreNeverDelayed() {
+        OutboundSession session = session(10_000, 1_000);
+
+        session.send(frame("{\"n\":1}", FrameKind.CHAT));
+
+        verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any());
+        assertThat(writerTasks).hasSize(1);
+    }
+
+    @Test
+    void factoryBatchesOnlySessionsThatOptedInAtHandshake() throws Exception {
+        OutboundSessionFactory factory = new OutboundSessionFactory(registry, scheduler, 10_000, 1_000, true, 5, 1_000);
+        WebSocketSession plain = mock(WebSocketSession.class);
+        when(delegate.getAttributes()).thenReturn(new HashMap<>(Map.of(OutboundSession.COALESCE_ATTRIBUTE, true)));
+        when(plain.getAttributes()).thenReturn(new HashMap<>());
+        try {
+            factory.decorate(plain).send(frame("{\"n\":1}", FrameKind.CHAT));
+            verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any());
+
+            factory.decorate(delegate).send(frame("{\"n\":1}", FrameKind.CHAT));
+            verify(scheduler).schedule(any(Runnable.class), eq(5L), eq(TimeUnit.MILLISECONDS));
+        } finally {
+            factory.shutdown();
+        }
+    }
+
+    private OutboundSession session(long sendTimeLimitMs, int bufferSizeLimit) {
+        return new OutboundSession(delegate, writerTasks::add, metrics, sendTimeLimitMs, bufferSizeLimit, scheduler, 0, 0);
+    }
+
+    private OutboundSession coalescingSession(int coalesceMaxBytes) {
+        return new OutboundSession(delegate, writerTasks::add, metrics, 10_000, 10_000, scheduler, 5, coalesceMaxBytes);
+    }
+
+    // runs the task the coalescing window scheduled, which hands the drain to the writer
+    private void runWindow() {
+        ArgumentCaptor<Runnable> window = ArgumentCaptor.captor();
+        verify(scheduler).schedule(window.capture(), eq(5L), eq(TimeUnit.MILLISECONDS));
+        window.getValue().run();
+        runWriter();
+    }
+
+    private void runWriter() {
+        Runnable task;
+        while ((task = writerTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private List<String> sent() throws Exception {
+        ArgumentCaptor<WebSocketMessage<?>> messages = ArgumentCaptor.captor();
+        verify(delegate, atLeastOnce()).sendMessage(messages.capture());
+        return messages.getAllValues().stream().map(m -> (String) m.getPayload()).toList();
+    }
+
+    private static OutboundFrame frame(String json, FrameKind kind) {
+        return new OutboundFrame(new TextMessage(json), kind);
+    }
+}
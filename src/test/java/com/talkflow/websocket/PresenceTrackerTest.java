@@ -0,0 +1,84 @@
+package com.talkflow.websocket;
+
+import com.talkflow.cache.ConnectionPermissionCache;
+import com.talkflow.entity.connection.ConnectionStatus;
+import com.talkflow.entity.connection.UserConnection;
+import com.talkflow.repository.UserConnectionRepo;
+import com.talkflow.repository.auth.UserRepository;
+import com.talkflow.websocket.cluster.InvalidationBus;
+import com.talkflow.websocket.cluster.MessageBus;
+import com.talkflow.websocket.cluster.SessionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PresenceTrackerTest {
+
+    private final UserConnectionRepo userConnectionRepo = mock(UserConnectionRepo.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final OutboundSession session = mock(OutboundSession.class);
+    private ConnectionPermissionCache connectionPermissions;
+    private PresenceTracker presence;
+
+    @BeforeEach
+    void setUp() {
+        when(userConnectionRepo.getAllAcceptedRequest(1L)).thenReturn(List.of(accepted(1, 2), accepted(3, 1)));
+        List<Object[]> lastSeen = new ArrayList<>();
+        lastSeen.add(new Object[]{2L, LocalDateTime.of(2026, 10, 1, 12, 0)});
+        lastSeen.add(new Object[]{3L, null});
+        when(userRepository.findLastSeenByUserIds(any())).thenReturn(lastSeen);
+        SessionRegistry sessionRegistry = mock(SessionRegistry.class);
+        when(sessionRegistry.isOnline(anyLong())).thenReturn(false);
+
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        connectionPermissions = new ConnectionPermissionCache(userConnectionRepo, mock(InvalidationBus.class), meters, 1_000, 300, 30, 1_000, 300);
+        presence = new PresenceTracker(connectionPermissions, userRepository, mock(JdbcTemplate.class), sessionRegistry, mock(MessageBus.class),
+                mock(ScheduledExecutorService.class), meters, 3_000, 60_000, 1_000);
+    }
+
+    @Test
+    void repeatedSnapshotsDoNotQueryTheDatabaseAgain() {
+        presence.sendSnapshot(1, session);
+        presence.sendSnapshot(1, session);
+        presence.sendSnapshot(1, session);
+
+        verify(userConnectionRepo, times(1)).getAllAcceptedRequest(1L);
+        verify(userRepository, times(1)).findLastSeenByUserIds(any());
+        verify(session, times(3)).send(any(OutboundFrame.class));
+    }
+
+    @Test
+    void aChangedConnectionReloadsThePeersOfBothUsers() {
+        presence.sendSnapshot(1, session);
+
+        connectionPermissions.invalidate(3L, 1L);
+        presence.sendSnapshot(1, session);
+
+        verify(userConnectionRepo, times(2)).getAllAcceptedRequest(1L);
+        // last-seen times do not depend on the connection and stay cached
+        verify(userRepository, times(1)).findLastSeenByUserIds(any());
+    }
+
+    @Test
+    void peersAreResolvedFromEitherSideOfTheConnection() {
+        assertThat(connectionPermissions.acceptedPeers(1)).containsExactly(2L, 3L);
+    }
+
+    private static UserConnection accepted(long senderId, long receiverId) {
+        return UserConnection.builder().senderId(senderId).receiverId(receiverId).status(ConnectionStatus.ACCEPTED).build();
+    }
+}
@@ -0,0 +1,80 @@
+package com.talkflow.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    @Test
+    void grantsTheBurstThenRejects() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire()).isTrue();
+        }
+        assertThat(bucket.tryAcquire()).isFalse();
+        assertThat(bucket.retryAfterMillis()).isBetween(1L, 1_000L);
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(10, 1);
+
+        boolean first = bucket.tryAcquire();
+        boolean second = bucket.tryAcquire();
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+
+        Thread.sleep(bucket.retryAfterMillis() + 10);
+
+        assertThat(bucket.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void isFullOnlyOnceEverythingTakenHasRefilled() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(10, 3);
+        assertThat(bucket.isFull()).isTrue();
+        assertThat(bucket.retryAfterMillis()).isZero();
+
+        bucket.tryAcquire();
+        assertThat(bucket.isFull()).isFalse();
+
+        Thread.sleep(150);
+        assertThat(bucket.isFull()).isTrue();
+    }
+
+    @Test
+    void concurrentCallersShareExactlyOneBurst() throws Exception {
+        TokenBucket bucket = new TokenBucket(0.001, 100);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1_000; i++) {
+                        if (bucket.tryAcquire()) granted.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+
+        assertThat(granted).hasValue(100);
+    }
+}
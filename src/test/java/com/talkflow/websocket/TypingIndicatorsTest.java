@@ -0,0 +1,139 @@
+package com.talkflow.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TypingIndicatorsTest {
+
+    private static final long INTERVAL_MS = 1_000;
+    private static final long EXPIRY_MS = 6_000;
+
+    // timers never fire on their own; the test runs the captured tasks when it wants them to fire
+    private final Queue<Timer> timers = new ConcurrentLinkedQueue<>();
+    private final List<Boolean> emitted = new CopyOnWriteArrayList<>();
+    private TypingIndicators typing;
+
+    @BeforeEach
+    void setUp() {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        // the production lambda returns the started thread, so it lands on the Callable overload
+        when(scheduler.schedule(any(Callable.class), anyLong(), any())).thenAnswer(invocation -> {
+            Callable<?> task = invocation.getArgument(0);
+            timers.add(new Timer(task::call, invocation.getArgument(1)));
+            return mock(ScheduledFuture.class);
+        });
+        typing = new TypingIndicators(scheduler, new SimpleMeterRegistry(), INTERVAL_MS, EXPIRY_MS);
+    }
+
+    @Test
+    void coalescesChangesInsideTheCooldownIntoOneTrailingEvent() throws Exception {
+        typing.update(1, "1|2", true, emitted::add);
+        typing.update(1, "1|2", false, emitted::add);
+        typing.update(1, "1|2", true, emitted::add);
+        typing.update(1, "1|2", false, emitted::add);
+        assertThat(emitted).containsExactly(true);
+
+        fire(INTERVAL_MS);
+
+        assertThat(emitted).containsExactly(true, false);
+    }
+
+    @Test
+    void anUnrefreshedStartExpiresIntoAStop() throws Exception {
+        typing.update(1, "1|2", true, emitted::add);
+        fire(INTERVAL_MS);
+
+        fire(EXPIRY_MS);
+
+        assertThat(emitted).containsExactly(true, false);
+    }
+
+    // the first expiry fired just as the refresh replaced it; the user is still typing
+    @Test
+    void anExpiryThatWasReplacedDoesNotStopTheIndicator() throws Exception {
+        typing.update(1, "1|2", true, emitted::add);
+        Timer stale = take(EXPIRY_MS);
+        fire(INTERVAL_MS);
+        typing.update(1, "1|2", true, emitted::add);
+
+        run(stale);
+
+        assertThat(emitted).containsExactly(true);
+        fire(EXPIRY_MS);
+        assertThat(emitted).containsExactly(true, false);
+    }
+
+    @Test
+    void anExpiryCancelledByAStopIsIgnored() throws Exception {
+        typing.update(1, "1|2", true, emitted::add);
+        Timer stale = take(EXPIRY_MS);
+        fire(INTERVAL_MS);
+        typing.update(1, "1|2", false, emitted::add);
+        fire(INTERVAL_MS);
+        typing.update(1, "1|2", true, emitted::add);
+
+        run(stale);
+
+        assertThat(emitted).containsExactly(true, false, true);
+    }
+
+    @Test
+    void emitsWithoutHoldingTheIndicatorLock() throws Exception {
+        CountDownLatch emitting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Consumer<Boolean> slowEmitter = state -> {
+            emitting.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        Thread first = Thread.ofVirtual().start(() -> typing.update(1, "1|2", true, slowEmitter));
+        assertThat(emitting.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread second = Thread.ofVirtual().start(() -> typing.update(1, "1|2", false, emitted::add));
+
+        second.join(5_000);
+        assertThat(second.isAlive()).isFalse();
+        release.countDown();
+        first.join();
+    }
+
+    private void fire(long delayMs) throws Exception {
+        run(take(delayMs));
+    }
+
+    private Timer take(long delayMs) {
+        Timer timer = timers.stream().filter(t -> t.delayMs() == delayMs).findFirst().orElseThrow();
+        timers.remove(timer);
+        return timer;
+    }
+
+    // scheduled tasks hand off to a virtual thread; give it time to finish
+    private void run(Timer timer) throws Exception {
+        timer.task().call();
+        Thread.sleep(100);
+    }
+
+    private record Timer(Callable<?> task, long delayMs) {
+    }
+}
@@ -0,0 +1,163 @@
+package com.talkflow.websocket.cluster;
+
+import com.talkflow.websocket.FrameKind;
+import com.talkflow.websocket.OutboundFrame;
+import com.talkflow.websocket.OutboundSession;
+import com.talkflow.websocket.SessionPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// several nodes in one JVM sharing an InMemoryClusterBroker, each with its own registry and buses
+class ClusterNodesTest {
+
+    private static final long HEARTBEAT_MS = 50;
+
+    private static final SessionPrincipal ALICE = new SessionPrincipal(1L, "alice@example.com", true);
+    private static final SessionPrincipal BOB = new SessionPrincipal(2L, "bob@example.com", true);
+    private static final SessionPrincipal CAROL = new SessionPrincipal(3L, "carol@example.com", true);
+
+    private final InMemoryClusterBroker broker = new InMemoryClusterBroker();
+    private final List<ScheduledExecutorService> schedulers = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        schedulers.forEach(ScheduledExecutorService::shutdownNow);
+    }
+
+    @Test
+    void deliversToRecipientsOnEveryNodeWithOneEnvelopePerNode() throws InterruptedException {
+        Node a = node("a");
+        Node b = node("b");
+        OutboundSession alice = a.connect(ALICE, "s1");
+        OutboundSession bob = b.connect(BOB, "s2");
+        OutboundSession carol = b.connect(CAROL, "s3");
+        await(() -> a.registry.isOnline(BOB.userId()));
+
+        OutboundFrame frame = new OutboundFrame(new TextMessage("{\"content\":\"hi\"}"), FrameKind.CHAT);
+        a.bus.sendToUsers(new long[]{1, 2, 3}, frame);
+
+        verify(alice).send(frame);
+        assertThat(received(bob)).isEqualTo(frame);
+        assertThat(received(carol)).isEqualTo(frame);
+        assertThat(a.meters.counter("talkflow.cluster.envelopes", "direction", "published").count()).isEqualTo(1);
+        assertThat(b.meters.counter("talkflow.cluster.envelopes", "direction", "received").count()).isEqualTo(1);
+    }
+
+    @Test
+    void seesUsersOnOtherNodesUntilTheirLastSessionCloses() throws InterruptedException {
+        Node a = node("a");
+        Node b = node("b");
+        b.connect(BOB, "s1");
+        b.connect(BOB, "s2");
+        await(() -> a.registry.isOnline(BOB.userId()));
+
+        assertThat(a.registry.onlineUserId(BOB.email())).isEqualTo(BOB.userId());
+        assertThat(b.registry.unregister(BOB, "s1")).isFalse();
+        assertThat(a.registry.isOnline(BOB.userId())).isTrue();
+        assertThat(b.registry.unregister(BOB, "s2")).isTrue();
+        assertThat(a.registry.isOnline(BOB.userId())).isFalse();
+    }
+
+    // a node that stops heartbeating without a clean shutdown stops counting once its key expires
+    @Test
+    void ignoresUsersOfANodeWhoseHeartbeatExpired() throws InterruptedException {
+        Node a = node("a");
+        Node b = node("b");
+        OutboundSession bob = b.connect(BOB, "s1");
+        await(() -> a.registry.isOnline(BOB.userId()));
+
+        b.scheduler.shutdownNow();
+        await(() -> !a.registry.isOnline(BOB.userId()));
+
+        a.bus.sendToUser(BOB.userId(), new OutboundFrame(new TextMessage("{}"), FrameKind.CHAT));
+        verify(bob, never()).send(any());
+        assertThat(a.meters.counter("talkflow.cluster.envelopes", "direction", "published").count()).isZero();
+    }
+
+    @Test
+    void aRestartedNodeClearsTheUsersItLeftBehind() throws InterruptedException {
+        Node a = node("a");
+        Node b = node("b");
+        b.connect(BOB, "s1");
+        await(() -> a.registry.isOnline(BOB.userId()));
+
+        b.scheduler.shutdownNow();
+        node("b");
+
+        assertThat(a.registry.isOnline(BOB.userId())).isFalse();
+    }
+
+    @Test
+    void invalidationsReachEveryOtherNodeButNotThePublisher() {
+        List<String> seenByA = new CopyOnWriteArrayList<>();
+        List<String> seenByB = new CopyOnWriteArrayList<>();
+        List<String> seenByC = new CopyOnWriteArrayList<>();
+        node("a").invalidations.subscribe("group-members", seenByA::add);
+        Node b = node("b");
+        b.invalidations.subscribe("group-members", seenByB::add);
+        node("c").invalidations.subscribe("group-members", seenByC::add);
+
+        b.invalidations.publish("group-members", "42");
+
+        assertThat(seenByA).containsExactly("42");
+        assertThat(seenByB).isEmpty();
+        assertThat(seenByC).containsExactly("42");
+    }
+
+    private Node node(String nodeId) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        schedulers.add(scheduler);
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        DistributedSessionRegistry registry = new DistributedSessionRegistry(new LocalSessionRegistry(4, meters), broker, nodeId, HEARTBEAT_MS, meters);
+        registry.start(scheduler);
+        DistributedMessageBus bus = new DistributedMessageBus(registry, broker, meters);
+        bus.start();
+        DistributedInvalidationBus invalidations = new DistributedInvalidationBus(broker, nodeId, meters);
+        invalidations.start();
+        return new Node(registry, bus, invalidations, scheduler, meters);
+    }
+
+    private static OutboundFrame received(OutboundSession session) {
+        ArgumentCaptor<OutboundFrame> frame = ArgumentCaptor.forClass(OutboundFrame.class);
+        verify(session).send(frame.capture());
+        return frame.getValue();
+    }
+
+    // alive nodes are refreshed on each heartbeat, so a change shows up within a few intervals
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private record Node(DistributedSessionRegistry registry, DistributedMessageBus bus, DistributedInvalidationBus invalidations,
+                        ScheduledExecutorService scheduler, SimpleMeterRegistry meters) {
+
+        OutboundSession connect(SessionPrincipal principal, String sessionId) {
+            OutboundSession session = mock(OutboundSession.class);
+            when(session.getId()).thenReturn(sessionId);
+            when(session.isOpen()).thenReturn(true);
+            registry.register(principal, session);
+            return session;
+        }
+    }
+}
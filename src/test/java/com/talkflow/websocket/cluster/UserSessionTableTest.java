@@ -0,0 +1,195 @@
+package com.talkflow.websocket.cluster;
+
+import com.talkflow.websocket.OutboundSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSessionTableTest {
+
+    @Test
+    void keepsEverySessionOfAUserUntilTheLastIsRemoved() {
+        UserSessionTable table = new UserSessionTable(4);
+        OutboundSession phone = session("phone");
+        OutboundSession laptop = session("laptop");
+
+        table.add(7, phone);
+        table.add(7, laptop);
+
+        assertThat(table.get(7)).containsExactly(phone, laptop);
+        assertThat(table.users()).isEqualTo(1);
+        assertThat(table.sessions()).isEqualTo(2);
+
+        assertThat(table.remove(7, ws -> ws == phone)).isFalse();
+        assertThat(table.get(7)).containsExactly(laptop);
+
+        assertThat(table.remove(7, ws -> ws == laptop)).isTrue();
+        assertThat(table.get(7)).isEmpty();
+        assertThat(table.users()).isZero();
+        assertThat(table.sessions()).isZero();
+    }
+
+    @Test
+    void removingAnUnknownUserChangesNothing() {
+        UserSessionTable table = new UserSessionTable(1);
+        table.add(1, session("a"));
+
+        assertThat(table.remove(2, ws -> true)).isFalse();
+        assertThat(table.remove(1, ws -> false)).isFalse();
+        assertThat(table.sessions()).isEqualTo(1);
+    }
+
+    @Test
+    void returnedListsAreSnapshotsThatLaterChangesDoNotTouch() {
+        UserSessionTable table = new UserSessionTable(1);
+        OutboundSession first = session("first");
+        table.add(3, first);
+        List<OutboundSession> before = table.get(3);
+
+        table.add(3, session("second"));
+
+        assertThat(before).containsExactly(first);
+    }
+
+    // a single stripe over a narrow key range forces long probe chains, so deletes have to shift entries back
+    @Test
+    void matchesAMapThroughRandomAddsAndRemovesWithManyCollisions() {
+        UserSessionTable table = new UserSessionTable(1);
+        Map<Long, List<OutboundSession>> model = new HashMap<>();
+        List<OutboundSession> pool = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            pool.add(session("s" + i));
+        }
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            long userId = 1 + random.nextInt(300);
+            List<OutboundSession> current = model.getOrDefault(userId, List.of());
+            if (random.nextBoolean() && current.size() < 64) {
+                OutboundSession ws;
+                do {
+                    ws = pool.get(random.nextInt(pool.size()));
+                } while (current.contains(ws));
+                table.add(userId, ws);
+                model.computeIfAbsent(userId, id -> new ArrayList<>()).add(ws);
+            } else {
+                List<OutboundSession> expected = model.get(userId);
+                OutboundSession victim = expected == null ? null : expected.get(random.nextInt(expected.size()));
+                boolean emptied = table.remove(userId, ws -> ws == victim);
+                if (victim != null) {
+                    expected.remove(victim);
+                    if (expected.isEmpty()) model.remove(userId);
+                }
+                assertThat(emptied).isEqualTo(victim != null && !model.containsKey(userId));
+            }
+
+            if (i % 10_000 == 0) {
+                assertMatches(table, model);
+            }
+        }
+        assertMatches(table, model);
+
+        for (Long userId : new ArrayList<>(model.keySet())) {
+            assertThat(table.remove(userId, ws -> true)).isTrue();
+            model.remove(userId);
+            assertMatches(table, model);
+        }
+        assertThat(table.users()).isZero();
+    }
+
+    @Test
+    void snapshotHoldsEverySession() {
+        UserSessionTable table = new UserSessionTable(8);
+        List<OutboundSession> all = new ArrayList<>();
+        for (long userId = 1; userId <= 500; userId++) {
+            OutboundSession ws = session("s" + userId);
+            table.add(userId, ws);
+            all.add(ws);
+        }
+
+        assertThat(table.snapshot()).containsExactlyInAnyOrderElementsOf(all);
+        assertThat(table.estimatedBytes()).isPositive();
+    }
+
+    @Test
+    void readersAlwaysSeeAConsistentListWhileWritersChurn() throws Exception {
+        UserSessionTable table = new UserSessionTable(4);
+        int writers = 4;
+        int usersPerWriter = 2_000;
+        Map<Long, OutboundSession> sessions = new HashMap<>();
+        for (long userId = 1; userId <= (long) writers * usersPerWriter; userId++) {
+            sessions.put(userId, mock(OutboundSession.class));
+        }
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(writers + 2)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                long firstUser = 1 + (long) w * usersPerWriter;
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < 5; round++) {
+                        for (long userId = firstUser; userId < firstUser + usersPerWriter; userId++) {
+                            table.add(userId, sessions.get(userId));
+                        }
+                        for (long userId = firstUser; userId < firstUser + usersPerWriter; userId += 2) {
+                            table.remove(userId, ws -> true);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int r = 0; r < 2; r++) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    Random random = new Random();
+                    for (int i = 0; i < 200_000; i++) {
+                        long userId = 1 + random.nextInt(writers * usersPerWriter);
+                        OutboundSession own = sessions.get(userId);
+                        for (OutboundSession ws : table.get(userId)) {
+                            assertThat(ws).isSameAs(own);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        }
+
+        // even users keep one entry per round, odd users were removed at the end of every round
+        for (long userId = 1; userId <= (long) writers * usersPerWriter; userId++) {
+            assertThat(table.get(userId)).hasSize(userId % 2 == 1 ? 0 : 5);
+        }
+        assertThat(table.users()).isEqualTo(writers * usersPerWriter / 2);
+        assertThat(table.sessions()).isEqualTo(writers * usersPerWriter / 2 * 5);
+    }
+
+    private static void assertMatches(UserSessionTable table, Map<Long, List<OutboundSession>> model) {
+        for (long userId = 1; userId <= 300; userId++) {
+            assertThat(table.get(userId)).containsExactlyElementsOf(model.getOrDefault(userId, List.of()));
+        }
+        assertThat(table.users()).isEqualTo(model.size());
+        assertThat(table.sessions()).isEqualTo(model.values().stream().mapToInt(List::size).sum());
+    }
+
+    private static OutboundSession session(String id) {
+        OutboundSession session = mock(OutboundSession.class);
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+}